@@ -0,0 +1,93 @@
+package core;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simudyne.core.annotations.ModelSettings;
+import simudyne.core.exec.runner.LocalRunnerBackend;
+import simudyne.core.exec.runner.ModelRunner;
+import simudyne.core.exec.runner.RunnerBackend;
+import simudyne.core.exec.runner.definition.BatchDefinitionsBuilder;
+import tau.TAUModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held by a {@link TAUModel} of {@code nAgents} people once it is set up, with and without
+ * {@link Globals#linkCentralAgentToPeople}. The model is run for one tick on the local runner, and
+ * the heap in use after a full GC is reported as {@code retainedHeapBytes}. The difference between
+ * the two values of {@code linkCentralAgentToPeople} is the heap held by the links and the graph's
+ * bookkeeping of them.
+ *
+ * <p>Run with {@code -prof gc} to also see the bytes allocated by each setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CentralAgentLinksBenchmark {
+
+  @Param({"10000"})
+  public int nAgents;
+
+  @Param({"false", "true"})
+  public boolean linkCentralAgentToPeople;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class RetainedHeap {
+    public long retainedHeapBytes;
+  }
+
+  @Benchmark
+  public void setUpModel(RetainedHeap retainedHeap) {
+    RunnerBackend localBackend = new LocalRunnerBackend();
+    ModelRunner modelRunner = localBackend.forModel(MeasuredTAUModel.class);
+    modelRunner.forRunDefinitionBuilder(
+        BatchDefinitionsBuilder.create()
+            .withInput(
+                "system",
+                ImmutableMap.of(
+                    "nAgents", nAgents, "linkCentralAgentToPeople", linkCentralAgentToPeople))
+            .forRuns(1)
+            .forTicks(1));
+    modelRunner.run().awaitResult();
+    retainedHeap.retainedHeapBytes = MeasuredTAUModel.usedHeapAfterFirstStep;
+  }
+
+  /** A TAUModel that measures the heap in use after its first step, when everything is set up. */
+  @ModelSettings(macroStep = 1, timeUnit = "DAYS", start = "2020-09-01T00:00:00Z")
+  public static class MeasuredTAUModel extends TAUModel {
+    static volatile long usedHeapAfterFirstStep;
+
+    private boolean measured = false;
+
+    @Override
+    public void step() {
+      super.step();
+      if (!measured) {
+        measured = true;
+        usedHeapAfterFirstStep = usedHeapAfterGc();
+      }
+    }
+
+    private static long usedHeapAfterGc() {
+      Runtime runtime = Runtime.getRuntime();
+      for (int i = 0; i < 3; i++) {
+        System.gc();
+      }
+      return runtime.totalMemory() - runtime.freeMemory();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simudyne.core.abm.testkit.TestKit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done by a {@link Person} when they get infected, and when they move. Run with {@code -prof
+ * gc} to see the allocations of the movement benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonBenchmark {
+
+  private static final int NUM_STEPS = 14;
+  private static final int NUM_PLACES_PER_STEP = 3;
+
+  private Person person;
+  private Globals globals;
+
+  @Setup
+  public void setUp() {
+    TestKit<Globals> testKit = TestKit.create(Globals.class);
+    globals = testKit.getGlobals();
+    person = testKit.addAgent(Person.class, Person::init);
+
+    ImmutableMap.Builder<Integer, List<PlaceInfo>> placesAtStep = ImmutableMap.builder();
+    for (int step = 0; step < NUM_STEPS; step++) {
+      ImmutableList.Builder<PlaceInfo> places = ImmutableList.builder();
+      for (int i = NUM_PLACES_PER_STEP - 1; i >= 0; i--) {
+        PlaceInfo place = PlaceInfo.create("place" + step + "_" + i, 0);
+        place.receivePlaceAgent(step * NUM_PLACES_PER_STEP + i);
+        places.add(place);
+      }
+      placesAtStep.put(step, places.build());
+    }
+    person.dailySchedule =
+        Person.DailySchedule.create(placesAtStep.build(), ImmutableList.of());
+  }
+
+  @Benchmark
+  public InfectionCharacteristics infectionSeverity() {
+    return person.infectionSeverity(0);
+  }
+
+  @Benchmark
+  public ImmutableList<PlaceInfo> decideNextLocation() {
+    globals.tStep = (globals.tStep + 1) % NUM_STEPS;
+    person.decideNextLocation();
+    return person.getCurrentPlaces();
+  }
+
+  @Benchmark
+  public Person.PersonTransmissibilityInfo getTransmissibilityInfo() {
+    return person.getTransmissibilityInfo(true);
+  }
+}
@@ -0,0 +1,95 @@
+package core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simudyne.core.abm.testkit.TestKit;
+import simudyne.core.rng.SeededRandom;
+import tau.TAUModel;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contact generation at a single place, for a step where a fixed share of the occupants is
+ * infectious. The occupants are built from synthetic {@link Person.PersonTransmissibilityInfo}, so
+ * no messages are sent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceAgentBenchmark {
+  private static final double PERC_INFECTIOUS = 0.05;
+
+  @Param({"10", "100", "1000", "40000"})
+  public int numOccupants;
+
+  @Param({"FULLY_CONNECTED", "STAR"})
+  public PlaceInfo.NetworkType networkType;
+
+  private Globals globals;
+  private PlaceAgent placeAgent;
+  private final OccupantState occupants = new OccupantState();
+  private SeededRandom random;
+
+  @Setup
+  public void setUp() {
+    TestKit<Globals> testKit = TestKit.create(Globals.class);
+    globals = testKit.getGlobals();
+    globals.infoExchangeMask = true;
+    globals.infoExchangeLikelihood = 0.5;
+
+    placeAgent = testKit.addAgent(PlaceAgent.class);
+    placeAgent.init();
+    // The first occupant is the center of STAR places.
+    placeAgent.setPlaceInfo(
+        PlaceInfo.create(
+            "benchmark",
+            TAUModel.PlaceType.BUILDING.ordinal(),
+            networkType,
+            0L,
+            numOccupants));
+
+    Random synthetic = new Random(1234);
+    long[] ids = new long[numOccupants];
+    Person.PersonTransmissibilityInfo[] infos = new Person.PersonTransmissibilityInfo[numOccupants];
+    for (int i = 0; i < numOccupants; i++) {
+      ids[i] = i;
+      boolean infectious = synthetic.nextDouble() < PERC_INFECTIOUS;
+      infos[i] =
+          Person.PersonTransmissibilityInfo.create(
+              infectious ? Person.InfectionStatus.INFECTED : Person.InfectionStatus.SUSCEPTIBLE,
+              infectious,
+              false,
+              synthetic.nextBoolean() ? Person.MaskType.N95 : Person.MaskType.NONE,
+              synthetic.nextDouble(),
+              3 + synthetic.nextInt(4),
+              synthetic.nextDouble(),
+              synthetic.nextDouble());
+    }
+    random = SeededRandom.create(42);
+    occupants.fill(ids, infos, numOccupants, globals, random);
+  }
+
+  @Benchmark
+  public int getWhoToInfect() {
+    return placeAgent.getWhoToInfect(occupants, globals, random).size();
+  }
+
+  @Benchmark
+  public Collection<ValueChangeContactEvent> getValueChangeContacts() {
+    return placeAgent.getValueChangeContacts(occupants, globals, random);
+  }
+}
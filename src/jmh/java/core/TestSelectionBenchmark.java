@@ -0,0 +1,57 @@
+package core;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simudyne.core.rng.SeededRandom;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weighted selection of the people tested in one step, with the default number of tests per day
+ * scaled to the population.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestSelectionBenchmark {
+  // Share of the population tested in one step.
+  private static final double PERC_TESTED = 0.01;
+
+  @Param({"400", "5000", "40000"})
+  public int nAgents;
+
+  private final TestSelectionIndex testSelectionMultipliers = new TestSelectionIndex();
+  private long numTestsToRun;
+  private SeededRandom random;
+
+  @Setup
+  public void setUp() {
+    Random synthetic = new Random(1234);
+    for (long id = 0; id < nAgents; id++) {
+      testSelectionMultipliers.setMultiplier(id, 1 + 2 * synthetic.nextDouble());
+    }
+    numTestsToRun = Math.max(1, (long) (PERC_TESTED * nAgents));
+    random = SeededRandom.create(42);
+  }
+
+  @Benchmark
+  public Set<Long> getAgentsToTest() {
+    return DefaultModulesImpl.getInstance()
+        .getAgentsToTest(ImmutableSet.of(), testSelectionMultipliers, random, numTestsToRun);
+  }
+}
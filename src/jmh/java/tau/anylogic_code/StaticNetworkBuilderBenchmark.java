@@ -0,0 +1,76 @@
+package tau.anylogic_code;
+
+import core.Globals;
+import core.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simudyne.core.abm.testkit.TestKit;
+import tau.Faculty;
+import tau.Staff;
+import tau.Student;
+import tau.UniversityConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the daily schedules of everyone at a university. The connections of agents are created
+ * again before every invocation, since creating the schedules changes them. CUSTOM is left out, as
+ * it has no {@link UniversityConfiguration}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StaticNetworkBuilderBenchmark {
+
+  @Param({"VERY_SMALL", "SMALL", "SCALABLE", "LARGE"})
+  public Globals.UniversityProfile universityProfile;
+
+  private Globals globals;
+  private final List<Person> allPeople = new ArrayList<>();
+  private StaticNetworkBuilder staticNetworkBuilder;
+
+  @Setup(Level.Trial)
+  public void setUpPeople() {
+    TestKit<Globals> testKit = TestKit.create(Globals.class);
+    globals = testKit.getGlobals();
+    globals.universityProfile = universityProfile.ordinal();
+    UniversityConfiguration universityConfiguration = globals.getUniversityConfiguration();
+
+    for (int i = 0; i < universityConfiguration.numStaff(); i++) {
+      allPeople.add(testKit.addAgent(Staff.class, Staff::init));
+    }
+    for (int i = 0; i < universityConfiguration.numStudents(); i++) {
+      allPeople.add(testKit.addAgent(Student.class, Student::init));
+    }
+    for (int i = 0; i < universityConfiguration.numFaculty(); i++) {
+      allPeople.add(testKit.addAgent(Faculty.class, Faculty::init));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpConnections() {
+    staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, globals);
+  }
+
+  @Benchmark
+  public Map<Long, Person.DailySchedule> createDailySchedules() {
+    return staticNetworkBuilder.createDailySchedules();
+  }
+}
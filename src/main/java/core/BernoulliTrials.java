@@ -0,0 +1,36 @@
+package core;
+
+import simudyne.core.rng.SeededRandom;
+
+/**
+ * Runs a sequence of independent Bernoulli trials by jumping straight to the next success, so the
+ * number of draws is proportional to the number of successes rather than the number of trials.
+ */
+public final class BernoulliTrials {
+
+  /**
+   * Returns the index of the first successful trial in {@code [from, end)}, or {@code end} if none
+   * of those trials succeed. Each trial succeeds independently with probability {@code p}.
+   *
+   * <p>The gap to the next success is geometrically distributed and is drawn from a single uniform
+   * sample.
+   */
+  public static long nextSuccess(long from, long end, double p, SeededRandom random) {
+    if (from >= end || p <= 0) {
+      return end;
+    }
+    if (p >= 1) {
+      return from;
+    }
+    double gap = Math.floor(Math.log(random.uniform(0, 1).sample()) / Math.log1p(-p));
+    if (!(gap < end - from)) {
+      return end;
+    }
+    return from + (long) gap;
+  }
+
+  // Prevent individual instances of class
+  private BernoulliTrials() {
+
+  }
+}
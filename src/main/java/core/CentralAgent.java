@@ -2,7 +2,6 @@ package core;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import simudyne.core.abm.Action;
 import simudyne.core.abm.Agent;
@@ -20,12 +19,14 @@ import static core.Utils.sortedCopyBySender;
  */
 public class CentralAgent extends Agent<Globals> {
 
-  public List<Test> testedAgents = new ArrayList<>();
-  private final Map<Long, Double> agentIdToTestSelectionMultipliers = new LinkedHashMap<>();
+  private final PendingTests pendingTests = new PendingTests();
+  private final TestSelectionIndex agentIdToTestSelectionMultipliers = new TestSelectionIndex();
 
   /**
    * Based on test selection multipliers, picks people for randomized testing, sending them a
    * {@link core.Messages.TestAdministeredMsg}. This will be processed by {@link Person#getTested}.
+   * The multipliers are passed as a {@link TestSelectionIndex} without copying them, which
+   * {@link Modules#getAgentsToTest} can only read.
    */
   public static Action<CentralAgent> doRandomizedTesting =
       Action.create(
@@ -37,7 +38,7 @@ public class CentralAgent extends Agent<Globals> {
                       ca.getGlobals()
                               .getAgentsToTest(
                                       ImmutableSet.of(),
-                                      ImmutableMap.copyOf(ca.agentIdToTestSelectionMultipliers),
+                                      ca.agentIdToTestSelectionMultipliers,
                                       ca.getPrng(),
                                       testsAvailable);
               agentsToTest.forEach(
@@ -61,7 +62,7 @@ public class CentralAgent extends Agent<Globals> {
             long totalTests = msgs.size();
             for(Messages.InfectionStatusMsg msg : msgs) {
               Test test = ca.generateTest(msg);
-              ca.testedAgents.add(test);
+              ca.pendingTests.add(test, ca.getGlobals().testDelayTStep);
               if(test.positive()) {
                 totalPositiveTests++;
               }
@@ -72,27 +73,25 @@ public class CentralAgent extends Agent<Globals> {
 
   /**
    * Send quarantine start/end orders depending on test results and contact tracing strategy.
+   * Counts the tests returned this step. The pending tests, including those returned this step,
+   * are counted so the model can publish their positivity in {@link Globals#testPositivityRate}.
    */
   public static Action<CentralAgent> releaseTestResults =
       Action.create(
           CentralAgent.class,
           ca -> {
-            double countTestResultsTotal = 0;
-            double countTestResultsPositive = 0;
-            for (Test result : ca.testedAgents) {
-                ca.getLongAccumulator("totTestsReturnedThisStep").add(1);
-                countTestResultsTotal++;
-                if (result.positive()) {
-                    ca.getLongAccumulator("posTestsReturnedThisStep").add(1);
-                    countTestResultsPositive++;
-                }
+            ca.getLongAccumulator("numPendingTests").add(ca.pendingTests.numPending());
+            ca.getLongAccumulator("numPendingPosTests").add(ca.pendingTests.numPendingPositive());
+            long numReturned = 0;
+            long numReturnedPositive = 0;
+            for (Test result : ca.pendingTests.releaseDue(ca.getGlobals().tStep)) {
+              numReturned++;
+              if (result.positive()) {
+                numReturnedPositive++;
+              }
             }
-            double testPositivityRate = countTestResultsPositive / countTestResultsTotal;
-            ca.testedAgents.removeIf(x -> x.tStepReturn() == ca.getGlobals().tStep);
-            ca.getLinks(Links.CentralAgentLink.class).forEach(link -> {
-                ca.send(Messages.TestPositivityRateMsg.class, m -> m.testPositivityRate = testPositivityRate)
-                        .to(link.getTo());
-            });
+            ca.getLongAccumulator("totTestsReturnedThisStep").add(numReturned);
+            ca.getLongAccumulator("posTestsReturnedThisStep").add(numReturnedPositive);
           });
 
   public static Action<CentralAgent> agentsDied =
@@ -102,7 +101,7 @@ public class CentralAgent extends Agent<Globals> {
             sortedCopyBySender(ca.getMessagesOfType(Messages.RIPmsg.class))
                 .forEach(
                     msg -> {
-                      ca.agentIdToTestSelectionMultipliers.remove(msg.getSender());
+                      ca.agentIdToTestSelectionMultipliers.removeAgent(msg.getSender());
                     });
           });
 
@@ -122,32 +121,43 @@ public class CentralAgent extends Agent<Globals> {
               }
             }
 
-            ca.getMessagesOfType(Messages.PlaceInfections.class)
-                .forEach(msg -> {
-                  ca.getGlobals().buildingTotalInfections
-                      .set(msg.placeType, ca.getGlobals().buildingTotalInfections
-                          .get(msg.placeType) + msg.numGotInfected);
-                  ca.getGlobals().buildingTotalPeople
-                      .set(msg.placeType, ca.getGlobals().buildingTotalPeople
-                          .get(msg.placeType) + msg.totalInPlace);
-
-                  ca.getGlobals().buildingInfectionsBeginningOfStep.set(msg.placeType,
-                      ca.getGlobals().buildingInfectionsBeginningOfStep.get(msg.placeType)
-                          + msg.numStartedInfected);
-                  ca.getGlobals().buildingInfectionsBeginningOfDay.set(msg.placeType,
-                      ca.getGlobals().buildingInfectionsBeginningOfDay.get(msg.placeType)
-                          + msg.numStartedInfected);
-                  ca.getGlobals().buildingInfectionsOverStep.set(msg.placeType,
-                      ca.getGlobals().buildingInfectionsOverStep.get(msg.placeType)
-                          + msg.numGotInfected);
-                  ca.getGlobals().buildingInfectionsOverDay.set(msg.placeType,
-                      ca.getGlobals().buildingInfectionsOverDay.get(msg.placeType)
-                          + msg.numGotInfected);
-
-                  ca.getGlobals().peopleWentToPlaceTypeStep.set(msg.placeType, true);
-                  ca.getGlobals().peopleWentToPlaceTypeDay.set(msg.placeType, true);
-
-                });
+            for (int placeType = 0;
+                placeType < ca.getGlobals().buildingInfectionsBeginningOfStep.size();
+                placeType++) {
+              long totalInPlace =
+                  ca.getLongAccumulator(PlaceTypeCounters.totalPeople(placeType)).value();
+              if (totalInPlace == 0) {
+                continue;
+              }
+              int numGotInfected = (int)
+                  ca.getLongAccumulator(PlaceTypeCounters.gotInfected(placeType)).value();
+              int numStartedInfected = (int)
+                  ca.getLongAccumulator(PlaceTypeCounters.startedInfected(placeType)).value();
+
+              ca.getGlobals().buildingTotalInfections
+                  .set(placeType, ca.getGlobals().buildingTotalInfections
+                      .get(placeType) + numGotInfected);
+              ca.getGlobals().buildingTotalPeople
+                  .set(placeType, ca.getGlobals().buildingTotalPeople
+                      .get(placeType) + (int) totalInPlace);
+
+              ca.getGlobals().buildingInfectionsBeginningOfStep.set(placeType,
+                  ca.getGlobals().buildingInfectionsBeginningOfStep.get(placeType)
+                      + numStartedInfected);
+              ca.getGlobals().buildingInfectionsBeginningOfDay.set(placeType,
+                  ca.getGlobals().buildingInfectionsBeginningOfDay.get(placeType)
+                      + numStartedInfected);
+
+              ca.getGlobals().buildingInfectionsOverStep.set(placeType,
+                  ca.getGlobals().buildingInfectionsOverStep.get(placeType)
+                      + numGotInfected);
+              ca.getGlobals().buildingInfectionsOverDay.set(placeType,
+                  ca.getGlobals().buildingInfectionsOverDay.get(placeType)
+                      + numGotInfected);
+
+              ca.getGlobals().peopleWentToPlaceTypeStep.set(placeType, true);
+              ca.getGlobals().peopleWentToPlaceTypeDay.set(placeType, true);
+            }
           });
 
   // TODO A lot of this test logic needs to be reworked
@@ -292,7 +302,7 @@ public class CentralAgent extends Agent<Globals> {
                 ca.getMessagesOfType(Messages.TestSelectionMultiplierMessage.class))
                 .forEach(
                     msg ->
-                        ca.agentIdToTestSelectionMultipliers.put(msg.getSender(), msg.getBody()));
+                        ca.agentIdToTestSelectionMultipliers.setMultiplier(msg.getSender(), msg.getBody()));
           });
 
   /**
@@ -0,0 +1,76 @@
+package core;
+
+import simudyne.core.rng.SeededRandom;
+
+/**
+ * Samples the contacts of one occupant of a place as indices into the place's occupant list, so
+ * contact generation does not need to copy the occupant list for every occupant.
+ *
+ * <p>With {@link DrawOrder#LEGACY} the draws are identical to calling {@link
+ * DefaultModulesImpl#sample} on the result of {@link DefaultModulesImpl#getAllExcept}: the excluded
+ * occupant is skipped by offsetting every drawn index at or above it.
+ *
+ * <p>A sampler owns a reusable index buffer, so each {@link PlaceAgent} keeps its own instance. The
+ * buffer is overwritten by the next call to {@link #sample}.
+ */
+public final class ContactSampler {
+
+  public enum DrawOrder {
+    // One discrete draw over the n - 1 other occupants per contact. Matches the draw order of the
+    // list based sampling this replaces.
+    LEGACY,
+    // One discrete draw over all n occupants per attempt, redrawing when the excluded occupant is
+    // hit.
+    REJECTION
+  }
+
+  private int[] contacts = new int[8];
+
+  /**
+   * Samples {@code numContacts} occupant indices, with replacement, from {@code [0, numOccupants)}
+   * excluding {@code excluded}. If there is exactly one other occupant it is returned once without
+   * consuming a draw, as {@link DefaultModulesImpl#sample} does.
+   *
+   * @return the number of indices written to {@link #contacts()}
+   */
+  public int sample(
+      int numOccupants, int excluded, int numContacts, DrawOrder drawOrder, SeededRandom random) {
+    int numOthers = numOccupants - 1;
+    if (numOthers <= 0) {
+      return 0;
+    }
+    if (numOthers == 1) {
+      ensureCapacity(1);
+      contacts[0] = excluded == 0 ? 1 : 0;
+      return 1;
+    }
+
+    ensureCapacity(numContacts);
+    for (int i = 0; i < numContacts; i++) {
+      int index;
+      if (drawOrder == DrawOrder.LEGACY) {
+        index = random.discrete(0, numOthers - 1).sample();
+        if (index >= excluded) {
+          index++;
+        }
+      } else {
+        do {
+          index = random.discrete(0, numOccupants - 1).sample();
+        } while (index == excluded);
+      }
+      contacts[i] = index;
+    }
+    return numContacts;
+  }
+
+  /** The indices written by the last call to {@link #sample}. */
+  public int[] contacts() {
+    return contacts;
+  }
+
+  private void ensureCapacity(int size) {
+    if (contacts.length < size) {
+      contacts = new int[Math.max(size, contacts.length * 2)];
+    }
+  }
+}
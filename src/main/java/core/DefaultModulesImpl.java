@@ -5,32 +5,32 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import simudyne.core.rng.SeededRandom;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class DefaultModulesImpl implements Modules {
   // TODO(#10) Reference source for these numbers.
-  public static InfectionTrajectoryDistribution overallInfectionTrajectoryDistribution = null;
-
-  private static synchronized void setOverallInfectionTrajectoryDistribution(Globals globals) {
-    overallInfectionTrajectoryDistribution =
-        InfectionTrajectoryDistribution.dummyBuilder()
-            .percentageAsymptomaticCases(globals.percAsymptomatic)
-            .percentageNonSevereSymptomaticCases(0.45)
-            .percentageSevereCases(globals.percSevere)
-            .infectiousRangeStart(2)
-            .infectiousRangeEnd(3)
-            .illnessDurationNonSevereRangeStart(7)
-            .illnessDurationNonSevereRangeEnd(14)
-            .symptomsOnsetRangeStart(3)
-            .symptomsOnsetRangeEnd(5)
-            .illnessDurationSevereRangeStart(14)
-            .illnessDurationSevereRangeEnd(30)
-            .build();
+  private static InfectionTrajectoryDistribution overallInfectionTrajectoryDistribution(
+      Globals globals) {
+    return InfectionTrajectoryDistribution.dummyBuilder()
+        .percentageAsymptomaticCases(globals.percAsymptomatic)
+        .percentageNonSevereSymptomaticCases(0.45)
+        .percentageSevereCases(globals.percSevere)
+        .infectiousRangeStart(2)
+        .infectiousRangeEnd(3)
+        .illnessDurationNonSevereRangeStart(7)
+        .illnessDurationNonSevereRangeEnd(14)
+        .symptomsOnsetRangeStart(3)
+        .symptomsOnsetRangeEnd(5)
+        .illnessDurationSevereRangeStart(14)
+        .illnessDurationSevereRangeEnd(30)
+        .build();
   }
 
+  // Built from the globals of the run this instance belongs to, on first use.
+  private volatile InfectionTrajectoryModel overallInfectionTrajectoryModel;
+
   public static DefaultModulesImpl getInstance() {
     return new DefaultModulesImpl();
   }
@@ -42,10 +42,25 @@ public class DefaultModulesImpl implements Modules {
   @Override
   public InfectionTrajectoryDistribution getInfectionTrajectoryDistribution(
       Person person, Globals globals) {
-    if (overallInfectionTrajectoryDistribution == null) {
-      setOverallInfectionTrajectoryDistribution(globals);
+    return getInfectionTrajectoryModel(person, globals).distribution();
+  }
+
+  @Override
+  public InfectionTrajectoryModel getInfectionTrajectoryModel(Person person, Globals globals) {
+    InfectionTrajectoryModel model = overallInfectionTrajectoryModel;
+    if (model == null) {
+      model = createOverallInfectionTrajectoryModel(globals);
     }
-    return overallInfectionTrajectoryDistribution;
+    return model;
+  }
+
+  private synchronized InfectionTrajectoryModel createOverallInfectionTrajectoryModel(
+      Globals globals) {
+    if (overallInfectionTrajectoryModel == null) {
+      overallInfectionTrajectoryModel =
+          InfectionTrajectoryModel.create(overallInfectionTrajectoryDistribution(globals));
+    }
+    return overallInfectionTrajectoryModel;
   }
 
   @Override
@@ -71,7 +86,7 @@ public class DefaultModulesImpl implements Modules {
   @Override
   public Set<Long> getAgentsToTest(
       Set<Long> symptomaticAgentsToday,
-      Map<Long, Double> testSelectionMultipliers,
+      TestSelectionIndex testSelectionMultipliers,
       SeededRandom random,
       Globals globals) {
     return getAgentsToTest(
@@ -84,32 +99,10 @@ public class DefaultModulesImpl implements Modules {
   @Override
   public Set<Long> getAgentsToTest(
           Set<Long> symptomaticAgentsToday,
-          Map<Long, Double> testSelectionMultipliers,
+          TestSelectionIndex testSelectionMultipliers,
           SeededRandom random,
           long numTestsToRun) {
-    Set<Long> agentsToTest = new HashSet<>();
-
-    double sumAllMultipliers = testSelectionMultipliers.values().stream().reduce(0.0, Double::sum);
-    double sumOfAgentsToTest = 0;
-
-    while (agentsToTest.size() < numTestsToRun
-            && agentsToTest.size() < testSelectionMultipliers.size()) {
-      double selection = random.uniform(0, sumAllMultipliers - sumOfAgentsToTest).sample();
-      double curSum = 0.0;
-      FIND_AGENT_TO_TEST_LOOP:
-      for (Map.Entry<Long, Double> entry : testSelectionMultipliers.entrySet()) {
-        if (agentsToTest.contains(entry.getKey())) {
-          continue;
-        }
-        curSum += entry.getValue();
-        if (selection < curSum) {
-          agentsToTest.add(entry.getKey());
-          sumOfAgentsToTest += entry.getValue();
-          break FIND_AGENT_TO_TEST_LOOP;
-        }
-      }
-    }
-    return agentsToTest;
+    return testSelectionMultipliers.sample(numTestsToRun, random);
   }
 
   @Override
@@ -182,22 +175,57 @@ public class DefaultModulesImpl implements Modules {
     return false;
   }
 
+  /**
+   * Same as {@link #willInfect(Messages.IAmHereMsg, Messages.IAmHereMsg, double, SeededRandom)},
+   * for two occupants of a place with conformity applied.
+   */
+  public static boolean willInfect(
+      OccupantState occupants,
+      int infected,
+      int infectee,
+      double baseInfectionRate,
+      SeededRandom random) {
+    if (!occupants.infectious[infected] || !occupants.isSusceptible(infectee)) {
+      return false;
+    }
+
+    double physicalDistancingStrength =
+        occupants.distancing[infected] * occupants.distancing[infectee];
+    double pPhysicalDistancingSuccess = random.uniform(0, 1).sample();
+    if (pPhysicalDistancingSuccess < physicalDistancingStrength) {
+      return false;
+    }
+
+    double pInfectOut = random.uniform(0, 1).sample();
+    double outTransmissionLikelihood =
+        getOutTransmissionLikelihood(baseInfectionRate, occupants.mask[infected], random);
+    if (pInfectOut < outTransmissionLikelihood) {
+      double inTransmissionLikelihood =
+          getInTransmissionLikelihood(occupants.mask[infectee], random);
+      double pInfectIn = random.uniform(0, 1).sample();
+      return pInfectIn < inTransmissionLikelihood;
+    }
+    return false;
+  }
+
   // Reduce incoming infection chance through NPI's, vaccination, etc.
   public static double getInTransmissionLikelihood(Person.PersonTransmissibilityInfo inTransmissibility, SeededRandom random) {
+    return getInTransmissionLikelihood(inTransmissibility.wearsMask() == Person.MaskType.N95, random);
+  }
+
+  static double getInTransmissionLikelihood(boolean wearsN95, SeededRandom random) {
     double inTransmissionChance = 1.0;
 
     // Inward efficiency: protecting the wearer against catching the disease
     double maskInwardEfficiency = 0;
 
-    Person.MaskType maskType = inTransmissibility.wearsMask();
-
     // NPI: Mask wearing
     /*if (maskType == Person.MaskType.HOMEMADE_CLOTH) {
       maskInwardEfficiency = random.uniform(0.2, 0.8).sample();
     } else if (maskType == Person.MaskType.SURGICAL) {
       maskInwardEfficiency = random.uniform(0.7, 0.9).sample();
     } else */
-    if (maskType == Person.MaskType.N95) {
+    if (wearsN95) {
       maskInwardEfficiency = random.uniform(0.95, 1).sample();
     }
     inTransmissionChance *= (1 - maskInwardEfficiency);
@@ -208,18 +236,23 @@ public class DefaultModulesImpl implements Modules {
   // Reduce outgoing infection chance through NPI's, vaccination, etc.
   public static double getOutTransmissionLikelihood(
       double baseInfectivity, Person.PersonTransmissibilityInfo outTransmissibility, SeededRandom random) {
+    return getOutTransmissionLikelihood(
+        baseInfectivity, outTransmissibility.wearsMask() == Person.MaskType.N95, random);
+  }
+
+  static double getOutTransmissionLikelihood(
+      double baseInfectivity, boolean wearsN95, SeededRandom random) {
     double outInfectivity = baseInfectivity;
 
     // Outward efficency: protecting the wearer from transmiting the disease
     double maskOutwardEfficiency = 0;
-    Person.MaskType maskType = outTransmissibility.wearsMask();
 
     /*if (maskType == Person.MaskType.HOMEMADE_CLOTH) {
       maskOutwardEfficiency = random.uniform(0, 0.8).sample();
     } else if (maskType == Person.MaskType.SURGICAL) {
       maskOutwardEfficiency = random.uniform(0.5, 0.9).sample();
     } else*/
-    if (maskType == Person.MaskType.N95) {
+    if (wearsN95) {
       maskOutwardEfficiency = random.uniform(0.7, 1).sample();
     }
     outInfectivity *= (1 - maskOutwardEfficiency);
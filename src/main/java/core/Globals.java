@@ -85,6 +85,10 @@ public final class Globals extends GlobalState {
     return modules.getInfectionTrajectoryDistribution(person, this);
   }
 
+  public InfectionTrajectoryModel getInfectionTrajectoryModel(Person person) {
+    return modules.getInfectionTrajectoryModel(person, this);
+  }
+
   public double getProbabilityOfDeathGivenSevereIllness(Person person) {
     if (person.age >= 0 && person.age < 10) {
       return pAgeDeath[0];
@@ -140,6 +144,10 @@ public final class Globals extends GlobalState {
   public int totalPositiveTests = 0;
   public int totalTestsAdministered = 0;
 
+  // Share of the pending tests that are positive, set by the model after
+  // CentralAgent#releaseTestResults. NaN when no tests are pending.
+  public double testPositivityRate = Double.NaN;
+
   public double getInfectionRate(int placeType) {
     // All place types have same base infectivity for now
     return baseInfectivity;
@@ -166,7 +174,7 @@ public final class Globals extends GlobalState {
 
   public Set<Long> getAgentsToTest(
           Set<Long> symptomaticAgentsToday,
-          Map<Long, Double> testSelectionMultipliers,
+          TestSelectionIndex testSelectionMultipliers,
           SeededRandom random,
           long numTestsToRun) {
     return modules.getAgentsToTest(symptomaticAgentsToday, testSelectionMultipliers, random, numTestsToRun);
@@ -250,6 +258,54 @@ public final class Globals extends GlobalState {
   @Input(name = "agent contact rate dist. range end")
   public int agentContactRateRangeEnd = 6;
 
+  // Keeps the contact draws of runs made before contacts were sampled by index. Turning this off
+  // switches to rejection sampling, which gives different (but equally seeded) contacts.
+  @Input(name = "Legacy contact draw order")
+  public boolean legacyContactDrawOrder = true;
+
+  public ContactSampler.DrawOrder getContactDrawOrder() {
+    return legacyContactDrawOrder
+        ? ContactSampler.DrawOrder.LEGACY
+        : ContactSampler.DrawOrder.REJECTION;
+  }
+
+  // Fully connected places with a larger capacity are split into shards of about this many people,
+  // each handled by its own PlaceAgent. 0 disables sharding.
+  @Input(name = "Place shard size")
+  public int placeShardSize = 0;
+
+  // Core code addresses the central agent by centralAgentID and people by the ids they send it, so
+  // links between them are only created for models that iterate them.
+  @Input(name = "Link central agent to people")
+  public boolean linkCentralAgentToPeople = false;
+
+  // Connects the students in a small world network of Links.SocialLink, about 50 links per
+  // student. Nothing in core reads them, so they are only built for models that do.
+  @Input(name = "Build student social links")
+  public boolean buildStudentSocialLinks = false;
+
+  // People at a place and at places enclosing it, e.g. a suite and its floor and building, send a
+  // single message to the innermost place, which forwards them to the others.
+  @Input(name = "Nest places")
+  public boolean nestPlaces = true;
+
+  // Campus events are filled from a pool of the people with events left to attend. The legacy
+  // assignment reshuffles everyone for every event instead, and reproduces older campuses.
+  @Input(name = "Legacy event assignment")
+  public boolean legacyEventAssignment = false;
+
+  // Staff and student places are only scheduled for the staff member and numStaffToStudenContacts
+  // students, sampled when the campus is built, rather than for every student. This changes the
+  // epidemiology: the staff member is then at the place and can infect and be infected there, and
+  // the same visitors come back every time the schedule repeats.
+  @Input(name = "Sample staff to student visitors")
+  public boolean sampleStaffToStudentVisitors = false;
+
+  // Campuses are saved to this directory and loaded from it by later runs with the same campus,
+  // which then skip building it. Campuses are always built when it is empty.
+  @Input(name = "Campus snapshot directory")
+  public String campusSnapshotDirectory = "";
+
   @Input(name = "Percent cases asymptomatic")
   public double percAsymptomatic = 0.5;
 
@@ -0,0 +1,128 @@
+package core;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * An {@link InfectionTrajectoryDistribution} together with the values derived from it, computed
+ * once when the model is created rather than every time a person is infected or checked for death.
+ *
+ * <p>The model is shared by everyone it is resolved for, but {@link simudyne.core.rng.SeededRandom}
+ * distributions are bound to the PRNG that created them, and every person has their own. So the
+ * model keeps the day ranges of the trajectory as integer ranges instead of samplers, and draws
+ * from them with the uniform sampler of the person being infected.
+ *
+ * <p>Models are created per run by {@link Modules#getInfectionTrajectoryModel(Person, Globals)},
+ * so runs with different inputs never share one.
+ */
+public final class InfectionTrajectoryModel {
+  private final InfectionTrajectoryDistribution distribution;
+  private final double asymptomaticThreshold;
+  private final double nonSevereSymptomaticThreshold;
+  private final double severeThreshold;
+  private final double expectedIllnessDurationSevereDays;
+  private final double expectedSymptomsOnsetSevereDays;
+  // The first day and the number of days of each range the trajectory is drawn from.
+  private final int infectiousStart;
+  private final int infectiousDays;
+  private final int illnessDurationNonSevereStart;
+  private final int illnessDurationNonSevereDays;
+  private final int illnessDurationSevereStart;
+  private final int illnessDurationSevereDays;
+  private final int symptomsOnsetStart;
+  private final int symptomsOnsetDays;
+
+  private InfectionTrajectoryModel(InfectionTrajectoryDistribution distribution) {
+    this.distribution = distribution;
+    this.asymptomaticThreshold = distribution.percentageAsymptomaticCases();
+    this.nonSevereSymptomaticThreshold =
+        distribution.percentageAsymptomaticCases()
+            + distribution.percentageNonSevereSymptomaticCases();
+    this.severeThreshold = 1 - distribution.percentageSevereCases();
+    this.expectedIllnessDurationSevereDays =
+        (distribution.illnessDurationSevereRangeStart()
+                + distribution.illnessDurationSevereRangeEnd())
+            / 2.0;
+    this.expectedSymptomsOnsetSevereDays =
+        (distribution.symptomsOnsetRangeStart() + distribution.symptomsOnsetRangeEnd()) / 2.0;
+    this.infectiousStart = distribution.infectiousRangeStart();
+    this.infectiousDays = numDays(infectiousStart, distribution.infectiousRangeEnd());
+    this.illnessDurationNonSevereStart = distribution.illnessDurationNonSevereRangeStart();
+    this.illnessDurationNonSevereDays =
+        numDays(illnessDurationNonSevereStart, distribution.illnessDurationNonSevereRangeEnd());
+    this.illnessDurationSevereStart = distribution.illnessDurationSevereRangeStart();
+    this.illnessDurationSevereDays =
+        numDays(illnessDurationSevereStart, distribution.illnessDurationSevereRangeEnd());
+    this.symptomsOnsetStart = distribution.symptomsOnsetRangeStart();
+    this.symptomsOnsetDays = numDays(symptomsOnsetStart, distribution.symptomsOnsetRangeEnd());
+  }
+
+  private static int numDays(int rangeStart, int rangeEnd) {
+    if (rangeEnd < rangeStart) {
+      throw new IllegalArgumentException(
+          "The range [" + rangeStart + ", " + rangeEnd + "] of the distribution is empty.");
+    }
+    return rangeEnd - rangeStart + 1;
+  }
+
+  public static InfectionTrajectoryModel create(InfectionTrajectoryDistribution distribution) {
+    return new InfectionTrajectoryModel(distribution);
+  }
+
+  public InfectionTrajectoryDistribution distribution() {
+    return distribution;
+  }
+
+  /** The expected illness duration of a severe case, in days. */
+  public double expectedIllnessDurationSevereDays() {
+    return expectedIllnessDurationSevereDays;
+  }
+
+  /** The expected symptoms onset of a severe case, in days. */
+  public double expectedSymptomsOnsetSevereDays() {
+    return expectedSymptomsOnsetSevereDays;
+  }
+
+  /**
+   * Samples the trajectory of an infection at {@code stepInfected}, given a {@code severity}
+   * drawn uniformly from [0, 1). The durations are drawn in days, each uniformly from its range with
+   * one draw from {@code uniform}, and converted to steps.
+   */
+  public InfectionCharacteristics sample(
+      double severity, DoubleSupplier uniform, int stepInfected, int tOneDay) {
+    int illnessDurationStart;
+    int illnessDurationDays;
+    boolean isAsymptomatic = false;
+
+    // asymptomatic cases
+    if (severity < asymptomaticThreshold) {
+      illnessDurationStart = illnessDurationNonSevereStart;
+      illnessDurationDays = illnessDurationNonSevereDays;
+      isAsymptomatic = true;
+    }
+    // symptomatic cases
+    else if (severity < nonSevereSymptomaticThreshold) {
+      illnessDurationStart = illnessDurationNonSevereStart;
+      illnessDurationDays = illnessDurationNonSevereDays;
+    }
+    // severe cases
+    else if (severity >= severeThreshold) {
+      illnessDurationStart = illnessDurationSevereStart;
+      illnessDurationDays = illnessDurationSevereDays;
+    } else {
+      throw new IllegalArgumentException("The given InfectionTrajectoryDistribution is invalid.");
+    }
+
+    int tInfectious =
+        drawDay(infectiousStart, infectiousDays, uniform) * tOneDay + stepInfected;
+    int illnessDuration =
+        drawDay(illnessDurationStart, illnessDurationDays, uniform) * tOneDay + stepInfected;
+    int symptomsOnset =
+        drawDay(symptomsOnsetStart, symptomsOnsetDays, uniform) * tOneDay + stepInfected;
+    return InfectionCharacteristics.create(
+        tInfectious, illnessDuration, symptomsOnset, isAsymptomatic);
+  }
+
+  private static int drawDay(int rangeStart, int numDays, DoubleSupplier uniform) {
+    return rangeStart + Math.min(numDays - 1, (int) (uniform.getAsDouble() * numDays));
+  }
+}
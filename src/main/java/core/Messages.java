@@ -16,10 +16,6 @@ public class Messages {
     java.lang.Double newAffiliationSpectrum;
   }
 
-  public static class TestPositivityRateMsg extends Message {
-    java.lang.Double testPositivityRate;
-  }
-
   public static class YouInfectedSomeoneMsg extends Message {
     /*
      * These fields are only filled when outputTransmissions is enabled.
@@ -60,6 +56,11 @@ public class Messages {
 
   public static class IAmHereMsg extends Message implements Copyable {
     public Person.PersonTransmissibilityInfo transmissibilityInfo;
+    /**
+     * Null, or the person's transmissibility at each of the {@link PlaceInfo#enclosingPlace}s of
+     * the place, null for the enclosing places the person is not at.
+     */
+    public Person.PersonTransmissibilityInfo[] enclosingPlaceInfos;
 
     @Override
     public void copyInto(Message message) {
@@ -68,14 +69,27 @@ public class Messages {
       }
       IAmHereMsg msg = (IAmHereMsg) message;
       msg.transmissibilityInfo = this.transmissibilityInfo;
+      msg.enclosingPlaceInfos = this.enclosingPlaceInfos;
     }
   }
 
-  public static class PlaceInfections extends Message {
-    int placeType;
-    int numGotInfected;
-    int numStartedInfected;
-    int totalInPlace;
+  /**
+   * The people forwarded by a place to one of its enclosing places, in place of their {@link
+   * IAmHereMsg}s.
+   */
+  public static class ForwardedOccupantsMsg extends Message implements Copyable {
+    public long[] personIds;
+    public Person.PersonTransmissibilityInfo[] transmissibilityInfos;
+
+    @Override
+    public void copyInto(Message message) {
+      if (!(message instanceof ForwardedOccupantsMsg)) {
+        throw new IllegalArgumentException("Message must be a ForwardedOccupantsMsg");
+      }
+      ForwardedOccupantsMsg msg = (ForwardedOccupantsMsg) message;
+      msg.personIds = this.personIds;
+      msg.transmissibilityInfos = this.transmissibilityInfos;
+    }
   }
 
   public static class OccupancyMsg extends Message implements Copyable {
@@ -17,6 +17,13 @@ public interface Modules {
   InfectionTrajectoryDistribution getInfectionTrajectoryDistribution(
       Person person, Globals globals);
 
+  /**
+   * Return the trajectory model for a given person, built from {@link
+   * #getInfectionTrajectoryDistribution(Person, Globals)}. Implementations should return the same
+   * model for people with the same distribution, rather than building one per call.
+   */
+  InfectionTrajectoryModel getInfectionTrajectoryModel(Person person, Globals globals);
+
   long createConnectionOfAgents(List<Person> allPeople, Globals globals);
 
   Map<Long, Person.DailySchedule> createPlacesAndPersonDailySchedules(Globals globals);
@@ -25,13 +32,13 @@ public interface Modules {
 
   Set<Long> getAgentsToTest(
       Set<Long> symptomaticAgentsToday,
-      Map<Long, Double> testSelectionMultipliers,
+      TestSelectionIndex testSelectionMultipliers,
       SeededRandom random,
       Globals globals);
 
   Set<Long> getAgentsToTest(
           Set<Long> symptomaticAgentsToday,
-          Map<Long, Double> testSelectionMultipliers,
+          TestSelectionIndex testSelectionMultipliers,
           SeededRandom random,
           long numTestsToRun);
 
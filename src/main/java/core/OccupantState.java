@@ -0,0 +1,192 @@
+package core;
+
+import simudyne.core.rng.SeededRandom;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The effective state of the occupants of a place for one step, after conformity has been applied.
+ * Contact generation, infection, information exchange and place statistics all read from it.
+ *
+ * <p>Each {@link PlaceAgent} owns one instance and refills it every step with {@link #fill}. The
+ * arrays are only grown, never shrunk, and are valid up to {@link #size}.
+ *
+ * <p>Occupants are stored in entrance order, which is a fixed shuffle of the occupants sorted by
+ * id. Conformity draws are made in that order, and contacts are sampled by index into it.
+ */
+public final class OccupantState {
+  // Fixed seed so that the entrance order only depends on the number of occupants.
+  private static final long ENTRANCE_ORDER_SEED = 1234L;
+  private static final Person.InfectionStatus[] STATUSES = Person.InfectionStatus.values();
+
+  int size;
+  long[] ids = new long[0];
+  // Person.InfectionStatus ordinals
+  byte[] status = new byte[0];
+  boolean[] infectious = new boolean[0];
+  // N95 is the only mask type modelled, so a mask flag is enough to describe what is worn.
+  boolean[] mask = new boolean[0];
+  double[] distancing = new double[0];
+  int[] contactRate = new int[0];
+  double[] conformity = new double[0];
+  double[] affiliation = new double[0];
+
+  int numInfected;
+  int numInfectious;
+
+  // Kept to report the effective transmissibility of the people involved in a transmission.
+  private Person.PersonTransmissibilityInfo[] infos = new Person.PersonTransmissibilityInfo[0];
+
+  private long[] sortedIds = new long[0];
+  private int[] entranceSlotOfRank = new int[0];
+  private int entranceOrderSize = -1;
+
+  /**
+   * Fills the buffer from the first {@code numMsgs} ids and transmissibilities of the people at a
+   * place, and applies conformity. If a person is given more than once, only the first is used.
+   *
+   * <p>Conformity moves people towards what the other occupants do. If {@link
+   * Globals#conformityMaskEnabled}, each person doing the opposite of the majority with regards to
+   * masks switches with probability equal to their conformity score. If {@link
+   * Globals#conformityDistancingEnabled}, each person's distancing compliance moves towards the
+   * average compliance in proportion to their conformity score.
+   */
+  void fill(
+      long[] msgIds,
+      Person.PersonTransmissibilityInfo[] msgInfos,
+      int numMsgs,
+      Globals globals,
+      SeededRandom random) {
+    ensureCapacity(numMsgs);
+    System.arraycopy(msgIds, 0, sortedIds, 0, numMsgs);
+    Arrays.sort(sortedIds, 0, numMsgs);
+    size = 0;
+    for (int i = 0; i < numMsgs; i++) {
+      if (i == 0 || sortedIds[i] != sortedIds[size - 1]) {
+        sortedIds[size++] = sortedIds[i];
+      }
+    }
+    computeEntranceOrder(size);
+    Arrays.fill(infos, 0, size, null);
+
+    numInfected = 0;
+    numInfectious = 0;
+    int numWearingMask = 0;
+    double distancingComplianceSum = 0;
+    for (int i = 0; i < numMsgs; i++) {
+      int slot = entranceSlotOfRank[Arrays.binarySearch(sortedIds, 0, size, msgIds[i])];
+      if (infos[slot] != null) {
+        continue;
+      }
+      Person.PersonTransmissibilityInfo info = msgInfos[i];
+      infos[slot] = info;
+      ids[slot] = msgIds[i];
+      status[slot] = (byte) info.status().ordinal();
+      infectious[slot] = info.isInfectious();
+      mask[slot] = info.wearsMask() != Person.MaskType.NONE;
+      distancing[slot] = info.physicalDistCompliance();
+      contactRate[slot] = info.contactRate();
+      conformity[slot] = info.conformityScore();
+      affiliation[slot] = info.affiliationSpectrum();
+
+      numInfected += info.status() == Person.InfectionStatus.INFECTED ? 1 : 0;
+      numInfectious += infectious[slot] ? 1 : 0;
+      numWearingMask += mask[slot] ? 1 : 0;
+      distancingComplianceSum += distancing[slot];
+    }
+
+    if (!globals.conformityMaskEnabled && !globals.conformityDistancingEnabled) {
+      return;
+    }
+    boolean majorityWearingMask = numWearingMask > size / 2;
+    double avgCompliance = distancingComplianceSum / size;
+    for (int i = 0; i < size; i++) {
+      if (globals.conformityMaskEnabled && majorityWearingMask != mask[i]) {
+        double coinflip = random.uniform(0, 1).sample();
+        if (coinflip < conformity[i]) {
+          mask[i] = !mask[i];
+        }
+      }
+      if (globals.conformityDistancingEnabled) {
+        distancing[i] += conformity[i] * (avgCompliance - distancing[i]);
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public Person.InfectionStatus status(int i) {
+    return STATUSES[status[i]];
+  }
+
+  public boolean isSusceptible(int i) {
+    return status[i] == Person.InfectionStatus.SUSCEPTIBLE.ordinal();
+  }
+
+  /** Returns the index of the occupant with the given id, or -1 if they are not present. */
+  public int indexOf(long id) {
+    for (int i = 0; i < size; i++) {
+      if (ids[i] == id) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** The transmissibility of an occupant with conformity applied. */
+  public Person.PersonTransmissibilityInfo transmissibilityInfo(int i) {
+    Person.PersonTransmissibilityInfo info = infos[i];
+    boolean maskUnchanged = mask[i] == (info.wearsMask() != Person.MaskType.NONE);
+    if (maskUnchanged && distancing[i] == info.physicalDistCompliance()) {
+      return info;
+    }
+    return info.toBuilder()
+        .wearsMask(maskUnchanged ? info.wearsMask() : mask[i] ? Person.MaskType.N95 : Person.MaskType.NONE)
+        .physicalDistCompliance(distancing[i])
+        .build();
+  }
+
+  // Same permutation as Collections#shuffle of a list of the given size. Only recomputed when the
+  // number of occupants changes.
+  private void computeEntranceOrder(int numOccupants) {
+    if (numOccupants == entranceOrderSize) {
+      return;
+    }
+    int[] order = new int[numOccupants];
+    for (int i = 0; i < numOccupants; i++) {
+      order[i] = i;
+    }
+    Random r = new Random(ENTRANCE_ORDER_SEED);
+    for (int i = numOccupants; i > 1; i--) {
+      int j = r.nextInt(i);
+      int tmp = order[i - 1];
+      order[i - 1] = order[j];
+      order[j] = tmp;
+    }
+    for (int slot = 0; slot < numOccupants; slot++) {
+      entranceSlotOfRank[order[slot]] = slot;
+    }
+    entranceOrderSize = numOccupants;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (ids.length >= capacity) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, newCapacity);
+    status = Arrays.copyOf(status, newCapacity);
+    infectious = Arrays.copyOf(infectious, newCapacity);
+    mask = Arrays.copyOf(mask, newCapacity);
+    distancing = Arrays.copyOf(distancing, newCapacity);
+    contactRate = Arrays.copyOf(contactRate, newCapacity);
+    conformity = Arrays.copyOf(conformity, newCapacity);
+    affiliation = Arrays.copyOf(affiliation, newCapacity);
+    infos = Arrays.copyOf(infos, newCapacity);
+    sortedIds = Arrays.copyOf(sortedIds, newCapacity);
+    entranceSlotOfRank = Arrays.copyOf(entranceSlotOfRank, newCapacity);
+  }
+}
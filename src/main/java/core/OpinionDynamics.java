@@ -0,0 +1,83 @@
+package core;
+
+import com.google.common.collect.ImmutableList;
+import simudyne.core.rng.SeededRandom;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Opinion dynamics: occupants of a place exchange their affiliation spectrum, and {@link
+ * Person#infoExchange} copies the new affiliation into mask and distancing compliance.
+ *
+ * <p>The affiliation spectrum is only read through compliance, so the exchange has no effect on
+ * the simulation unless {@link Globals#infoExchangeMask} or {@link Globals#infoExchangeDistancing}
+ * is set, and is not run at all otherwise.
+ */
+public final class OpinionDynamics {
+
+  public static boolean isActive(Globals globals) {
+    return globals.infoExchangeMask || globals.infoExchangeDistancing;
+  }
+
+  /**
+   * Generates the affiliation exchanges between the occupants of a place.
+   *
+   * <p>Every initiating occupant makes {@link Globals#infoExchangeContactRate} contacts, or a single
+   * contact if there is only one other occupant. Each contact results in an exchange with
+   * probability {@link Globals#infoExchangeLikelihood}. All of these outcomes are drawn first, and
+   * only the successful contacts get a partner and a winner, whose affiliation the loser adopts. An
+   * occupant that loses several exchanges adopts the average of the winners' affiliations.
+   *
+   * @param centerIndex the index of the only initiating occupant, or -1 if every occupant initiates
+   * @return the exchanges, sorted by the id of the occupant whose affiliation changes
+   */
+  public static List<ValueChangeContactEvent> exchangeAffiliations(
+      OccupantState occupants,
+      int centerIndex,
+      ContactSampler contactSampler,
+      Globals globals,
+      SeededRandom random) {
+    int numOccupants = occupants.size;
+    if (numOccupants <= 1) {
+      return ImmutableList.of();
+    }
+
+    int contactsPerOccupant = numOccupants == 2 ? 1 : globals.infoExchangeContactRate;
+    long numContacts = (long) (centerIndex < 0 ? numOccupants : 1) * contactsPerOccupant;
+    ContactSampler.DrawOrder drawOrder = globals.getContactDrawOrder();
+
+    // alterId -> {sum of adopted values, number of exchanges lost}
+    Map<Long, double[]> adopted = new TreeMap<>();
+    for (long contact = BernoulliTrials.nextSuccess(
+            0, numContacts, globals.infoExchangeLikelihood, random);
+        contact < numContacts;
+        contact = BernoulliTrials.nextSuccess(
+            contact + 1, numContacts, globals.infoExchangeLikelihood, random)) {
+      int ego = centerIndex < 0 ? (int) (contact / contactsPerOccupant) : centerIndex;
+      contactSampler.sample(numOccupants, ego, 1, drawOrder, random);
+      int other = contactSampler.contacts()[0];
+
+      boolean egoWins = random.uniform(0, 1).sample() < 0.5;
+      int winner = egoWins ? ego : other;
+      int loser = egoWins ? other : ego;
+
+      double[] values = adopted.computeIfAbsent(occupants.ids[loser], id -> new double[2]);
+      values[0] += occupants.affiliation[winner];
+      values[1]++;
+    }
+
+    ImmutableList.Builder<ValueChangeContactEvent> builder = ImmutableList.builder();
+    for (Map.Entry<Long, double[]> entry : adopted.entrySet()) {
+      double[] values = entry.getValue();
+      builder.add(ValueChangeContactEvent.create(entry.getKey(), values[0] / values[1]));
+    }
+    return builder.build();
+  }
+
+  // Prevent individual instances of class
+  private OpinionDynamics() {
+
+  }
+}
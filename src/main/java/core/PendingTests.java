@@ -0,0 +1,73 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests whose results have not been returned yet, in a ring of buckets indexed by {@link
+ * Test#tStepReturn()}. With {@code testDelayTStep + 1} buckets, the tests returning on a step are
+ * the only ones in its bucket, so releasing them does not touch any other pending test.
+ *
+ * <p>The number of pending tests and of pending positive tests are kept as running counts.
+ */
+public final class PendingTests {
+  private final List<List<Test>> buckets = new ArrayList<>();
+  private int numPending;
+  private int numPendingPositive;
+
+  public void add(Test test, int testDelayTStep) {
+    resize(testDelayTStep + 1);
+    buckets.get(bucketOf(test.tStepReturn())).add(test);
+    numPending++;
+    if (test.positive()) {
+      numPendingPositive++;
+    }
+  }
+
+  /** Removes and returns the tests returning on or before {@code tStep}. */
+  public List<Test> releaseDue(int tStep) {
+    List<Test> due = new ArrayList<>();
+    if (buckets.isEmpty()) {
+      return due;
+    }
+    List<Test> bucket = buckets.get(bucketOf(tStep));
+    List<Test> notDue = new ArrayList<>();
+    for (Test test : bucket) {
+      (test.tStepReturn() <= tStep ? due : notDue).add(test);
+    }
+    buckets.set(bucketOf(tStep), notDue);
+    for (Test test : due) {
+      numPending--;
+      if (test.positive()) {
+        numPendingPositive--;
+      }
+    }
+    return due;
+  }
+
+  public int numPending() {
+    return numPending;
+  }
+
+  public int numPendingPositive() {
+    return numPendingPositive;
+  }
+
+  private int bucketOf(int tStepReturn) {
+    return Math.floorMod(tStepReturn, buckets.size());
+  }
+
+  // Only needed when the test delay changes, in which case the pending tests are redistributed.
+  private void resize(int numBuckets) {
+    if (buckets.size() == numBuckets) {
+      return;
+    }
+    List<Test> pending = new ArrayList<>();
+    buckets.forEach(pending::addAll);
+    buckets.clear();
+    for (int i = 0; i < numBuckets; i++) {
+      buckets.add(new ArrayList<>());
+    }
+    pending.forEach(test -> buckets.get(bucketOf(test.tStepReturn())).add(test));
+  }
+}
@@ -9,9 +9,9 @@ import simudyne.core.rng.SeededRandom;
 
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 
 
@@ -49,6 +49,19 @@ public class Person extends Agent<Globals> {
   public MaskType maskType = MaskType.NONE;
   public DailySchedule dailySchedule = DailySchedule.dummy();
   private boolean infectedFromSusceptibleThisStep = false;
+  // Reused by executeMovement while the person's state does not change, one for each mask choice.
+  private PersonTransmissibilityInfo transmissibilityWithoutMask;
+  private PersonTransmissibilityInfo transmissibilityWithMask;
+  private SeededRandom uniformSamplerRandom;
+  private DoubleSupplier uniformSampler;
+  // Resolved when the person is infected, see infectionSeverity.
+  private InfectionTrajectoryModel trajectoryModel;
+  // Per current place, reused by executeMovement. reportedThrough holds the index of the current
+  // place a place is reported through, or REPORTED_DIRECTLY.
+  private PersonTransmissibilityInfo[] movementInfos = new PersonTransmissibilityInfo[0];
+  private int[] reportedThrough = new int[0];
+  private static final int REPORTED_DIRECTLY = -1;
+  private static final int ENCLOSED = -2;
 
   protected boolean hasBeenTested = false;
 
@@ -171,24 +184,21 @@ public class Person extends Agent<Globals> {
   }
 
   public ImmutableList<PlaceInfo> getCurrentPlaces() {
-    return ImmutableList.<PlaceInfo>builder()
-        .addAll(this.currentPlaceInfos)
-        .build();
+    return currentPlaceInfos;
   }
 
   /**
    * Subclasses should override this method if there is any implementation specific schedule logic.
    */
   public void decideNextLocationIfNotIsolating() {
+    // Already immutable, so setCurrentPlaces does not copy it.
     setCurrentPlaces(
-        ImmutableList.sortedCopyOf(
-            Comparator.comparingLong(PlaceInfo::placeId),
-            getScheduledPlaces().stream()
-                .collect(Collectors.toList())));
+        dailySchedule.stepSchedule().placesAtStepSortedByPlaceId(
+            getGlobals().tStep % dailySchedule.numSteps()));
   }
 
   public List<PlaceInfo> getScheduledPlaces() {
-    return dailySchedule.placesAtStepMap().get(getGlobals().tStep % dailySchedule.placesAtStepMap().size());
+    return dailySchedule.placesAtStep(getGlobals().tStep % dailySchedule.numSteps());
   }
 
   /**
@@ -216,112 +226,47 @@ public class Person extends Agent<Globals> {
     return complianceMask;
   }
 
+  /**
+   * Returns the person's current {@link PersonTransmissibilityInfo}. The last one created for each
+   * mask choice is returned again as long as it still matches the person.
+   */
+  PersonTransmissibilityInfo getTransmissibilityInfo(boolean willWearMask) {
+    PersonTransmissibilityInfo info =
+        willWearMask ? transmissibilityWithMask : transmissibilityWithoutMask;
+    if (info == null || !info.describes(this, willWearMask)) {
+      info = PersonTransmissibilityInfo.create(this, willWearMask);
+      if (willWearMask) {
+        transmissibilityWithMask = info;
+      } else {
+        transmissibilityWithoutMask = info;
+      }
+    }
+    return info;
+  }
+
+  // Samples uniform(0, 1) from the person's prng, without creating a distribution for every draw.
+  private DoubleSupplier getUniformSampler() {
+    if (uniformSamplerRandom != getPrng()) {
+      uniformSamplerRandom = getPrng();
+      uniformSampler = uniformSamplerRandom.uniform(0, 1)::sample;
+    }
+    return uniformSampler;
+  }
+
   /**
    * Determine if agent infected by COVID-19 is asymptomatic, symptomatic or severe. Severity is
-   * calculated based on distribution returned by {@link #getInfectionTrajectoryDistribution()}.
+   * calculated based on the model returned by {@link #getInfectionTrajectoryModel()}, which is
+   * kept for the rest of the infection.
    */
   public InfectionCharacteristics infectionSeverity(int stepInfected) {
 
     // Potential Addition of Inputs: Age of Agent
     // By having the age of an agent as input, we are able to change the proportion of asymptomatic,
     // symptomatic and severe cases
-    double severity = getPrng().uniform(0, 1).sample();
-    InfectionTrajectoryDistribution trajectoryDistribution = getInfectionTrajectoryDistribution();
-
-    int tInfectious = 0;
-    int illnessDuration = 0;
-    int symptomsOnset = 0;
-    boolean isAsymptomatic = false;
-
-    // asymptomatic cases
-    if (severity < trajectoryDistribution.percentageAsymptomaticCases()) {
-      tInfectious =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.infectiousRangeStart(),
-                  trajectoryDistribution.infectiousRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-      illnessDuration =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.illnessDurationNonSevereRangeStart(),
-                  trajectoryDistribution.illnessDurationNonSevereRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-      symptomsOnset =
-              getPrng()
-                      .discrete(
-                              trajectoryDistribution.symptomsOnsetRangeStart(),
-                              trajectoryDistribution.symptomsOnsetRangeEnd())
-                      .sample()
-                      * getGlobals().tOneDay
-                      + stepInfected;
-      isAsymptomatic = true;
-    }
-    // symptomatic cases
-    else if (severity >= trajectoryDistribution.percentageAsymptomaticCases()
-        && severity
-        < trajectoryDistribution.percentageAsymptomaticCases()
-        + trajectoryDistribution.percentageNonSevereSymptomaticCases()) {
-      tInfectious =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.infectiousRangeStart(),
-                  trajectoryDistribution.infectiousRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-      illnessDuration =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.illnessDurationNonSevereRangeStart(),
-                  trajectoryDistribution.illnessDurationNonSevereRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-      symptomsOnset =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.symptomsOnsetRangeStart(),
-                  trajectoryDistribution.symptomsOnsetRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-    }
-    // severe cases
-    else if (severity >= (1 - trajectoryDistribution.percentageSevereCases())) {
-      tInfectious =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.infectiousRangeStart(),
-                  trajectoryDistribution.infectiousRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-      illnessDuration =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.illnessDurationSevereRangeStart(),
-                  trajectoryDistribution.illnessDurationSevereRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-      symptomsOnset =
-          getPrng()
-              .discrete(
-                  trajectoryDistribution.symptomsOnsetRangeStart(),
-                  trajectoryDistribution.symptomsOnsetRangeEnd())
-              .sample()
-              * getGlobals().tOneDay
-              + stepInfected;
-    } else {
-      throw new IllegalArgumentException("The given InfectionTrajectoryDistribution is invalid.");
-    }
-
-    return InfectionCharacteristics.create(tInfectious, illnessDuration, symptomsOnset, isAsymptomatic);
+    DoubleSupplier uniform = getUniformSampler();
+    double severity = uniform.getAsDouble();
+    trajectoryModel = getInfectionTrajectoryModel();
+    return trajectoryModel.sample(severity, uniform, stepInfected, getGlobals().tOneDay);
   }
 
   /**
@@ -329,7 +274,14 @@ public class Person extends Agent<Globals> {
    */
   // TODO This should maybe go in Modules
   public InfectionTrajectoryDistribution getInfectionTrajectoryDistribution() {
-    return getGlobals().getInfectionTrajectoryDistribution(this);
+    return getInfectionTrajectoryModel().distribution();
+  }
+
+  /**
+   * The infection trajectory model for this agent. Override this for testing.
+   */
+  public InfectionTrajectoryModel getInfectionTrajectoryModel() {
+    return getGlobals().getInfectionTrajectoryModel(this);
   }
 
   /**
@@ -340,6 +292,10 @@ public class Person extends Agent<Globals> {
       return false;
     }
     double pAgeDeathThres = getGlobals().getProbabilityOfDeathGivenSevereIllness(this);
+    if (trajectoryModel == null) {
+      // Initially infected people never had their infection sampled.
+      trajectoryModel = getInfectionTrajectoryModel();
+    }
 
     // Normalise pAgeDeathThres, (22- 4) = Expected value of (illness duration - symptoms onset) for
     // severely ill person.
@@ -347,23 +303,15 @@ public class Person extends Agent<Globals> {
     // pAgeDeathThres (symptomOnset > illnessDuration)
     // Rationale: symptomatic (but not severe) person has a lower probability of dying.
     double expectedIllnessDurationSevere =
-        (getGlobals().getInfectionTrajectoryDistribution(this).illnessDurationSevereRangeStart()
-            + getGlobals()
-            .getInfectionTrajectoryDistribution(this)
-            .illnessDurationSevereRangeEnd())
-            / 2.0
-            * getGlobals().tOneDay;
+        trajectoryModel.expectedIllnessDurationSevereDays() * getGlobals().tOneDay;
     double expectedSymptomsOnsetSevere =
-        (getGlobals().getInfectionTrajectoryDistribution(this).symptomsOnsetRangeStart()
-            + getGlobals().getInfectionTrajectoryDistribution(this).symptomsOnsetRangeEnd())
-            / 2.0
-            * getGlobals().tOneDay;
+        trajectoryModel.expectedSymptomsOnsetSevereDays() * getGlobals().tOneDay;
     pAgeDeathThres =
         (pAgeDeathThres / (expectedIllnessDurationSevere - expectedSymptomsOnsetSevere))
             * (illnessDuration - symptomOnset);
 
     // Random probability for death
-    double pKilled = getPrng().uniform(0, 1).sample();
+    double pKilled = getUniformSampler().getAsDouble();
 
     return pKilled < pAgeDeathThres;
   }
@@ -440,32 +388,85 @@ public class Person extends Agent<Globals> {
 
 
   /**
-   * Reports to {@link CentralAgent} where the agent will be going on this step/
+   * Reports to the places the agent is at on this step. If the agent is at a place and at some of
+   * its {@link PlaceInfo#enclosingPlace}s, they only report to that place, which forwards them.
    */
   public static Action<Person> executeMovement =
       ActionFactory.createSuppressibleAction(
           Person.class,
           person -> {
             if (person.status != InfectionStatus.DEAD) {
-              person.getCurrentPlaces().forEach(
-                  place -> {
-                    boolean willWearMask =
-                        person.getLikelihoodOfWearingMaskAtPlace(place)
-                            > person.getPrng().uniform(0, 1).sample();
-                    PersonTransmissibilityInfo transmissibilityInfo =
-                        PersonTransmissibilityInfo.create(person, willWearMask);
-
-                    person
-                        .send(
-                            Messages.IAmHereMsg.class,
-                            msg -> {
-                              msg.transmissibilityInfo = transmissibilityInfo;
-                            })
-                        .to(place.placeId());
-                  });
+              person.reportToCurrentPlaces();
             }
           });
 
+  private void reportToCurrentPlaces() {
+    ImmutableList<PlaceInfo> places = getCurrentPlaces();
+    int numPlaces = places.size();
+    if (movementInfos.length < numPlaces) {
+      movementInfos = new PersonTransmissibilityInfo[numPlaces];
+      reportedThrough = new int[numPlaces];
+    }
+    // The mask draws are made for every place, in order, wherever the person reports to.
+    DoubleSupplier uniform = getUniformSampler();
+    for (int i = 0; i < numPlaces; i++) {
+      boolean willWearMask =
+          getLikelihoodOfWearingMaskAtPlace(places.get(i)) > uniform.getAsDouble();
+      movementInfos[i] = getTransmissibilityInfo(willWearMask);
+    }
+
+    // A place is reported through the first current place enclosing it that is not itself
+    // enclosed by a current place.
+    for (int i = 0; i < numPlaces; i++) {
+      reportedThrough[i] = isEnclosedByOtherPlace(places, i) ? ENCLOSED : REPORTED_DIRECTLY;
+    }
+    for (int i = 0; i < numPlaces; i++) {
+      for (int j = 0; j < numPlaces && reportedThrough[i] == ENCLOSED; j++) {
+        if (reportedThrough[j] == REPORTED_DIRECTLY
+            && places.get(j).indexOfEnclosingPlace(places.get(i)) >= 0) {
+          reportedThrough[i] = j;
+        }
+      }
+      if (reportedThrough[i] == ENCLOSED) {
+        reportedThrough[i] = REPORTED_DIRECTLY;
+      }
+    }
+
+    for (int i = 0; i < numPlaces; i++) {
+      if (reportedThrough[i] != REPORTED_DIRECTLY) {
+        continue;
+      }
+      PlaceInfo place = places.get(i);
+      PersonTransmissibilityInfo transmissibilityInfo = movementInfos[i];
+      PersonTransmissibilityInfo[] enclosingPlaceInfos = null;
+      for (int j = 0; j < numPlaces; j++) {
+        if (reportedThrough[j] == i) {
+          if (enclosingPlaceInfos == null) {
+            enclosingPlaceInfos = new PersonTransmissibilityInfo[place.numEnclosingPlaces()];
+          }
+          enclosingPlaceInfos[place.indexOfEnclosingPlace(places.get(j))] = movementInfos[j];
+        }
+      }
+      PersonTransmissibilityInfo[] finalEnclosingPlaceInfos = enclosingPlaceInfos;
+      send(
+          Messages.IAmHereMsg.class,
+          msg -> {
+            msg.transmissibilityInfo = transmissibilityInfo;
+            msg.enclosingPlaceInfos = finalEnclosingPlaceInfos;
+          })
+          .to(place.shardFor(getID(), getGlobals().tStep).placeId());
+    }
+  }
+
+  private static boolean isEnclosedByOtherPlace(List<PlaceInfo> places, int i) {
+    for (int j = 0; j < places.size(); j++) {
+      if (j != i && places.get(j).indexOfEnclosingPlace(places.get(i)) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Action to handle infection message from infected student to susceptible student
    */
@@ -500,28 +501,26 @@ public class Person extends Agent<Globals> {
           ActionFactory.createSuppressibleAction(
                   Person.class,
                   person -> {
-                    if (person.hasMessagesOfType(Messages.TestPositivityRateMsg.class)) {
-                      double testPositivity = person.getMessagesOfType(Messages.TestPositivityRateMsg.class)
-                              .get(0).testPositivityRate;
-                      if (testPositivity >= person.testPositivityRateThreshold
-                              && !person.increasedComplianceFromTestPositivityRate) {
-                        if (person.getGlobals().testPositivityRateObservanceMask) {
-                          person.complianceMask = 1 - ((1 - person.complianceMask) / 2);
-                        }
-                        if (person.getGlobals().testPositivityRateObservanceDistancing) {
-                          person.compliancePhysicalDistancing = 1 - ((1 - person.compliancePhysicalDistancing) / 2);
-                        }
-                        person.increasedComplianceFromTestPositivityRate = true;
-                      } else if (testPositivity < person.testPositivityRateThreshold
-                              && person.increasedComplianceFromTestPositivityRate) {
-                        if (person.getGlobals().testPositivityRateObservanceMask) {
-                          person.complianceMask = 1 - ((1 - person.complianceMask) * 2);
-                        }
-                        if (person.getGlobals().testPositivityRateObservanceDistancing) {
-                          person.compliancePhysicalDistancing = 1 - ((1 - person.compliancePhysicalDistancing) * 2);
-                        }
-                        person.increasedComplianceFromTestPositivityRate = false;
+                    double testPositivity = person.getGlobals().testPositivityRate;
+                    // Comparisons with NaN are false, so nothing changes when no tests are pending.
+                    if (testPositivity >= person.testPositivityRateThreshold
+                            && !person.increasedComplianceFromTestPositivityRate) {
+                      if (person.getGlobals().testPositivityRateObservanceMask) {
+                        person.complianceMask = 1 - ((1 - person.complianceMask) / 2);
+                      }
+                      if (person.getGlobals().testPositivityRateObservanceDistancing) {
+                        person.compliancePhysicalDistancing = 1 - ((1 - person.compliancePhysicalDistancing) / 2);
+                      }
+                      person.increasedComplianceFromTestPositivityRate = true;
+                    } else if (testPositivity < person.testPositivityRateThreshold
+                            && person.increasedComplianceFromTestPositivityRate) {
+                      if (person.getGlobals().testPositivityRateObservanceMask) {
+                        person.complianceMask = 1 - ((1 - person.complianceMask) * 2);
+                      }
+                      if (person.getGlobals().testPositivityRateObservanceDistancing) {
+                        person.compliancePhysicalDistancing = 1 - ((1 - person.compliancePhysicalDistancing) * 2);
                       }
+                      person.increasedComplianceFromTestPositivityRate = false;
                     }
                   });
 
@@ -1097,6 +1096,18 @@ public class Person extends Agent<Globals> {
       );
     }
 
+    /** Whether this is what {@link #create(Person, boolean)} would return for the person now. */
+    boolean describes(Person person, boolean willWearMask) {
+      return status() == person.status
+          && isInfectious() == person.isInfectious()
+          && isSymptomatic() == person.isSymptomatic()
+          && wearsMask() == (willWearMask ? person.maskType : MaskType.NONE)
+          && physicalDistCompliance() == person.compliancePhysicalDistancing
+          && contactRate() == person.contactRate
+          && conformityScore() == person.conformity
+          && affiliationSpectrum() == person.affiliationSpectrum;
+    }
+
     public static Builder builder() {
       return new AutoValue_Person_PersonTransmissibilityInfo.Builder();
     }
@@ -1138,9 +1149,10 @@ public class Person extends Agent<Globals> {
   @AutoValue
   public abstract static class DailySchedule {
     /**
-     * The places the person will go to at different tSteps.
+     * The places the person will go to at different tSteps. Usually shared with other people who
+     * have the same schedule.
      */
-    public abstract ImmutableMap<Integer, List<PlaceInfo>> placesAtStepMap();
+    public abstract StepSchedule stepSchedule();
 
     /**
      * The places the person goes to when isolating.
@@ -1153,23 +1165,59 @@ public class Person extends Agent<Globals> {
      */
     public abstract Consumer<Person> secondaryInitialization();
 
+    public int numSteps() {
+      return stepSchedule().numSteps();
+    }
+
+    public List<PlaceInfo> placesAtStep(int step) {
+      return stepSchedule().placesAtStep(step);
+    }
+
+    /**
+     * The places the person will go to at different tSteps, keyed by step. This copies the
+     * schedule, use {@link #placesAtStep(int)} to look up a single step.
+     */
+    public ImmutableMap<Integer, List<PlaceInfo>> placesAtStepMap() {
+      ImmutableMap.Builder<Integer, List<PlaceInfo>> placesAtStepMap = ImmutableMap.builder();
+      for (int step = 0; step < numSteps(); step++) {
+        placesAtStepMap.put(step, ImmutableList.copyOf(placesAtStep(step)));
+      }
+      return placesAtStepMap.build();
+    }
+
     public static DailySchedule create(
-        ImmutableMap<Integer, List<PlaceInfo>> placesAtStepMap,
+        StepSchedule stepSchedule,
         ImmutableList<PlaceInfo> isolationPlaceInfos,
         Consumer<Person> secondaryInitialization) {
       return new AutoValue_Person_DailySchedule(
-          placesAtStepMap, isolationPlaceInfos, secondaryInitialization);
+          stepSchedule, isolationPlaceInfos, secondaryInitialization);
+    }
+
+    /** {@code placesAtStepMap} must be keyed by the steps from 0 to its size - 1. */
+    public static DailySchedule create(
+        ImmutableMap<Integer, List<PlaceInfo>> placesAtStepMap,
+        ImmutableList<PlaceInfo> isolationPlaceInfos,
+        Consumer<Person> secondaryInitialization) {
+      return create(toStepSchedule(placesAtStepMap), isolationPlaceInfos, secondaryInitialization);
     }
 
     public static DailySchedule create(
         ImmutableMap<Integer, List<PlaceInfo>> placesAtStepMap, ImmutableList<PlaceInfo> isolationPlaceInfos) {
-      return new AutoValue_Person_DailySchedule(placesAtStepMap, isolationPlaceInfos, p -> {
+      return create(placesAtStepMap, isolationPlaceInfos, p -> {
       });
     }
 
     public static DailySchedule dummy() {
-      return create(ImmutableMap.of(), ImmutableList.of(), person -> {
+      return create(StepSchedule.empty(), ImmutableList.of(), person -> {
       });
     }
+
+    private static StepSchedule toStepSchedule(Map<Integer, List<PlaceInfo>> placesAtStepMap) {
+      List<List<PlaceInfo>> placesAtStep = new ArrayList<>();
+      for (int step = 0; step < placesAtStepMap.size(); step++) {
+        placesAtStep.add(placesAtStepMap.getOrDefault(step, ImmutableList.of()));
+      }
+      return StepSchedule.of(placesAtStep);
+    }
   }
 }
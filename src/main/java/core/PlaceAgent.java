@@ -12,12 +12,26 @@ import tau.TAUModel;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static core.Utils.sortedCopyBySender;
-
 public class PlaceAgent extends Agent<Globals> {
 
     private long placeId;
     private PlaceInfo placeInfo;
+    private final OccupantState occupants = new OccupantState();
+    private final ContactSampler contactSampler = new ContactSampler();
+    private final TransmissionKernel transmissionKernel = new TransmissionKernel();
+    private final TransmissionEvents transmissionEvents = new TransmissionEvents();
+    // Contacts of the current step, as indices into occupants
+    private int[] pairInfected = new int[16];
+    private int[] pairInfectee = new int[16];
+    private int numPairs;
+    // People at the place on this step, kept from forwardOccupants for generateContactsAndInfect.
+    private long[] arrivalIds = new long[16];
+    private Person.PersonTransmissibilityInfo[] arrivalInfos = new Person.PersonTransmissibilityInfo[16];
+    private int numArrivals;
+    // Number of people forwarded to each enclosing place on this step
+    private int[] numForwarded = new int[0];
+    // Scratch space for countArrivals.
+    private long[] sortedArrivalIds = new long[16];
 
     public void init() {
         this.placeId = this.getID();
@@ -83,312 +97,335 @@ public class PlaceAgent extends Agent<Globals> {
             );
 
     /**
-     * Receives {@link Messages.IAmHereMsg} from {@link Person#executeMovement}
+     * Receives {@link Messages.IAmHereMsg} from {@link Person#executeMovement} and keeps the people
+     * at the place for {@link #generateContactsAndInfect}.
+     * Sends {@link Messages.ForwardedOccupantsMsg} to {@link #generateContactsAndInfect} of each
+     * {@link PlaceInfo#enclosingPlace} that some of these people are also at, with all of them.
+     */
+    public static Action<PlaceAgent> forwardOccupants =
+            Action.create(
+                    PlaceAgent.class,
+                    pla -> {
+                        pla.numArrivals = 0;
+                        if (!pla.hasMessagesOfType(Messages.IAmHereMsg.class)) {
+                            return;
+                        }
+                        List<Messages.IAmHereMsg> msgs = pla.getMessagesOfType(Messages.IAmHereMsg.class);
+                        int numEnclosingPlaces = pla.place().numEnclosingPlaces();
+                        if (pla.numForwarded.length < numEnclosingPlaces) {
+                            pla.numForwarded = new int[numEnclosingPlaces];
+                        } else {
+                            Arrays.fill(pla.numForwarded, 0, numEnclosingPlaces, 0);
+                        }
+                        int[] numForwarded = pla.numForwarded;
+                        for (Messages.IAmHereMsg msg : msgs) {
+                            pla.addArrival(msg.getSender(), msg.transmissibilityInfo);
+                            if (msg.enclosingPlaceInfos != null) {
+                                for (int k = 0; k < numEnclosingPlaces; k++) {
+                                    numForwarded[k] += msg.enclosingPlaceInfos[k] != null ? 1 : 0;
+                                }
+                            }
+                        }
+                        for (int k = 0; k < numEnclosingPlaces; k++) {
+                            if (numForwarded[k] > 0) {
+                                pla.forward(msgs, k, numForwarded[k]);
+                            }
+                        }
+                    }
+            );
+
+    private void forward(List<Messages.IAmHereMsg> msgs, int enclosingPlace, int numForwarded) {
+        long[] personIds = new long[numForwarded];
+        Person.PersonTransmissibilityInfo[] infos = new Person.PersonTransmissibilityInfo[numForwarded];
+        int n = 0;
+        for (Messages.IAmHereMsg msg : msgs) {
+            if (msg.enclosingPlaceInfos != null && msg.enclosingPlaceInfos[enclosingPlace] != null) {
+                personIds[n] = msg.getSender();
+                infos[n++] = msg.enclosingPlaceInfos[enclosingPlace];
+            }
+        }
+        send(Messages.ForwardedOccupantsMsg.class, msg -> {
+            msg.personIds = personIds;
+            msg.transmissibilityInfos = infos;
+        }).to(place().enclosingPlace(enclosingPlace).placeId());
+    }
+
+    /**
+     * Takes the people kept by {@link #forwardOccupants} and those forwarded in
+     * {@link Messages.ForwardedOccupantsMsg} by enclosed places.
      * Generates contacts and infections from the people present
      * Sends {@link Messages.InfectionMsg} to {@link Person#infectedByCOVID}
      * Send {@link Messages.YouInfectedSomeoneMsg} to {@link Person#infectedSomeoneElseWithCOVID}
-     * Send {@link Messages.PlaceInfections} to {@link CentralAgent#processPlaceInfectionRates}
+     * Sends {@link Messages.InfoExchangeMsg} to {@link Person#infoExchange} if {@link OpinionDynamics#isActive}
+     * Adds to the {@link PlaceTypeCounters} read by {@link CentralAgent#processPlaceInfectionRates}
+     *
+     * <p>A person reported more than once in a step, for example both directly and by an enclosed
+     * place, is only counted once.
      */
     public static Action<PlaceAgent> generateContactsAndInfect =
             Action.create(
                     PlaceAgent.class,
                     pla -> {
-                        ImmutableList<Long> peoplePresent = ImmutableList.of();
-                        if (pla.hasMessagesOfType(Messages.IAmHereMsg.class)) {
-                            PlaceInfo pl = pla.place();
-                            List<Messages.IAmHereMsg> msgs = pla.getMessagesOfType(Messages.IAmHereMsg.class);
-                            ImmutableList.Builder<Long> builder = new ImmutableList.Builder<>();
-                            msgs.stream().map(msg -> msg.getSender()).sorted().distinct().forEach(builder::add);
-                            peoplePresent = builder.build();
-
-                            int totalInPlace = peoplePresent.size();
-                            Collection<ContactEventInfo> contacts = pla.getWhoToInfect(
-                                    sortedCopyBySender(msgs),
-                                    pla.getGlobals(), pla.getPrng());
-
-                            contacts.stream()
-                                    .filter(ContactEventInfo::resultedInTransmission)
-                                    .forEachOrdered(
-                                            transmission -> {
-                                                pla.send(Messages.InfectionMsg.class).to(transmission.infected());
-                                                final boolean outputTransmissions = pla.getGlobals().outputTransmissions;
-                                                transmission.infectedBy().ifPresent(infectedBy -> {
-                                                    pla.send(Messages.YouInfectedSomeoneMsg.class, msg -> {
-                                                        if (outputTransmissions) {
-                                                            msg.newlyInfectedAgentId = transmission.infected();
-                                                            msg.newlyInfectedMaskType =
-                                                                    transmission.infectedTransmiissibilityInfo().get().wearsMask();
-                                                            msg.newlyInfectedCompliancePhysicalDistancing =
-                                                                    transmission.infectedTransmiissibilityInfo().get().physicalDistCompliance();
-                                                            msg.infectedByMaskType =
-                                                                    transmission.infectedByTransmiissibilityInfo().get().wearsMask();
-                                                            msg.placeId = transmission.placeId();
-                                                            msg.placeType = transmission.placeType();
-                                                        }
-                                                    }).to(infectedBy);
-                                                });
-                                            }
-                                    );
+                        for (Messages.ForwardedOccupantsMsg msg
+                                : pla.getMessagesOfType(Messages.ForwardedOccupantsMsg.class)) {
+                            for (int i = 0; i < msg.personIds.length; i++) {
+                                pla.addArrival(msg.personIds[i], msg.transmissibilityInfos[i]);
+                            }
+                        }
+                        int numArrivals = pla.numArrivals;
+                        pla.numArrivals = 0;
+                        if (numArrivals == 0) {
+                            return;
+                        }
+
+                        boolean anyInfectious = false;
+                        for (int i = 0; i < numArrivals; i++) {
+                            anyInfectious |= pla.arrivalInfos[i].isInfectious();
+                        }
+                        boolean opinionDynamicsActive = OpinionDynamics.isActive(pla.getGlobals());
+
+                        // Nobody can be infected or change their mind, so only the counters are updated.
+                        if (!anyInfectious && !opinionDynamicsActive) {
+                            pla.countArrivals(numArrivals);
+                            return;
+                        }
 
+                        OccupantState occupants = pla.occupants;
+                        occupants.fill(
+                                pla.arrivalIds, pla.arrivalInfos, numArrivals, pla.getGlobals(), pla.getPrng());
+
+                        int numGotInfected = 0;
+                        if (anyInfectious) {
+                            TransmissionEvents contacts = pla.getWhoToInfect(
+                                    occupants, pla.getGlobals(), pla.getPrng());
+                            numGotInfected = contacts.sortTransmitted();
+                            int[] transmissions = contacts.transmittedInOrder();
+                            for (int i = 0; i < numGotInfected; i++) {
+                                pla.sendTransmission(contacts, transmissions[i]);
+                            }
+                        }
 
+                        if (opinionDynamicsActive) {
                             Collection<ValueChangeContactEvent> valueChangeContacts = pla.getValueChangeContacts(
-                                    sortedCopyBySender(msgs),
-                                    pla.getGlobals(), pla.getPrng());
+                                    occupants, pla.getGlobals(), pla.getPrng());
 
                             valueChangeContacts.forEach(contact -> {
                                 pla.send(Messages.InfoExchangeMsg.class,
                                         m -> m.newAffiliationSpectrum = contact.alterNewAffiliationValue())
                                         .to(contact.alterId());
                             });
-
-                            int numStartedInfected = (int) msgs.stream()
-                                    .filter(msg -> msg.transmissibilityInfo.status() == Person.InfectionStatus.INFECTED)
-                                    .count();
-                            int numGotInfected = (int) contacts.stream()
-                                    .filter(ContactEventInfo::resultedInTransmission)
-                                    .count();
-
-                            pla.send(
-                                            Messages.PlaceInfections.class,
-                                            msg -> {
-                                                msg.placeType = pl.placeType();
-                                                msg.numGotInfected = numGotInfected;
-                                                msg.numStartedInfected = numStartedInfected;
-                                                msg.totalInPlace = totalInPlace;
-                                            })
-                                    .to(pla.getGlobals().centralAgentID);
-
                         }
+
+                        pla.addToPlaceTypeCounters(occupants.size, occupants.numInfected, numGotInfected);
                     }
             );
 
-    public List<Messages.IAmHereMsg> processConformity(List<Messages.IAmHereMsg> msgs, SeededRandom random, Globals globals) {
-        Random r = new Random(1234L);
-
-        List<Messages.IAmHereMsg> toReturn = new ArrayList<>();
-        List<Messages.IAmHereMsg> msgsCopy = new ArrayList<>(msgs);
-        Collections.shuffle(msgsCopy, r);
-
-        // Simulate agent entrance order
-        int agentCount = msgs.size();
-        int numWearingMask = 0;
-        double distancingComplianceSum = 0;
-        for (Messages.IAmHereMsg msg : msgsCopy) {
-            numWearingMask += msg.transmissibilityInfo.wearsMask() != Person.MaskType.NONE ? 1 : 0;
-            distancingComplianceSum += msg.transmissibilityInfo.physicalDistCompliance();
+    /**
+     * Adds the first {@code numArrivals} arrivals to the place type counters without filling the
+     * occupant state. Like {@link OccupantState#fill}, a person who arrived more than once is counted
+     * once, with the status of their first arrival.
+     */
+    private void countArrivals(int numArrivals) {
+        if (sortedArrivalIds.length < numArrivals) {
+            sortedArrivalIds = new long[arrivalIds.length];
         }
-        boolean majorityWearingMask = numWearingMask > agentCount / 2;
-        double avgCompliance = distancingComplianceSum / agentCount;
-        for (Messages.IAmHereMsg msg : msgsCopy) {
-            boolean isWearingMask = msg.transmissibilityInfo.wearsMask() != Person.MaskType.NONE;
-            double physicalDistanceComp = msg.transmissibilityInfo.physicalDistCompliance();
-            Person.PersonTransmissibilityInfo.Builder transmissibilityInfo = msg.transmissibilityInfo.toBuilder();
-            if (globals.conformityMaskEnabled &&
-                    majorityWearingMask == (msg.transmissibilityInfo.wearsMask() == Person.MaskType.NONE)) {
-                double coinflip = random.uniform(0, 1).sample();
-                if (coinflip < msg.transmissibilityInfo.conformityScore()) {
-                    transmissibilityInfo.wearsMask(isWearingMask ? Person.MaskType.NONE : Person.MaskType.N95);
-                }
+        System.arraycopy(arrivalIds, 0, sortedArrivalIds, 0, numArrivals);
+        Arrays.sort(sortedArrivalIds, 0, numArrivals);
+        int numPeople = 0;
+        for (int i = 0; i < numArrivals; i++) {
+            if (i == 0 || sortedArrivalIds[i] != sortedArrivalIds[i - 1]) {
+                numPeople++;
             }
-            if (globals.conformityDistancingEnabled) {
-                double amtToChage = msg.transmissibilityInfo.conformityScore() * (avgCompliance - physicalDistanceComp);
-                transmissibilityInfo.physicalDistCompliance(physicalDistanceComp + amtToChage);
+        }
+        Set<Long> counted = numPeople == numArrivals ? null : new HashSet<>();
+        int numStartedInfected = 0;
+        for (int i = 0; i < numArrivals; i++) {
+            if ((counted == null || counted.add(arrivalIds[i]))
+                    && arrivalInfos[i].status() == Person.InfectionStatus.INFECTED) {
+                numStartedInfected++;
             }
-            msg.transmissibilityInfo = transmissibilityInfo.build();
-            toReturn.add(msg);
         }
-        return toReturn;
+        addToPlaceTypeCounters(numPeople, numStartedInfected, 0);
     }
 
-    public Collection<ContactEventInfo> getWhoToInfect(
-            List<Messages.IAmHereMsg> occupantsOrig, Globals globals, SeededRandom random) {
+    private void addArrival(long personId, Person.PersonTransmissibilityInfo info) {
+        if (numArrivals == arrivalIds.length) {
+            arrivalIds = Arrays.copyOf(arrivalIds, 2 * numArrivals);
+            arrivalInfos = Arrays.copyOf(arrivalInfos, 2 * numArrivals);
+        }
+        arrivalIds[numArrivals] = personId;
+        arrivalInfos[numArrivals++] = info;
+    }
 
-        List<Messages.IAmHereMsg> occupants = processConformity(occupantsOrig, random, globals);
-        HashMap<Long, ContactEventInfo> toInfect = new HashMap<>();
+    private void sendTransmission(TransmissionEvents contacts, int slot) {
+        send(Messages.InfectionMsg.class).to(contacts.recipient(slot));
+        if (!getGlobals().outputTransmissions) {
+            send(Messages.YouInfectedSomeoneMsg.class).to(contacts.source(slot));
+            return;
+        }
+        ContactEventInfo transmission =
+                contacts.toContactEventInfo(slot, occupants, placeId(), place().placeType());
+        send(Messages.YouInfectedSomeoneMsg.class, msg -> {
+            msg.newlyInfectedAgentId = transmission.infected();
+            msg.newlyInfectedMaskType =
+                    transmission.infectedTransmiissibilityInfo().get().wearsMask();
+            msg.newlyInfectedCompliancePhysicalDistancing =
+                    transmission.infectedTransmiissibilityInfo().get().physicalDistCompliance();
+            msg.infectedByMaskType =
+                    transmission.infectedByTransmiissibilityInfo().get().wearsMask();
+            msg.placeId = transmission.placeId();
+            msg.placeType = transmission.placeType();
+        }).to(transmission.infectedBy().get());
+    }
 
-        if (occupants.size() <= 1) {
-            return ImmutableList.of();
+    private void addToPlaceTypeCounters(int totalInPlace, int numStartedInfected, int numGotInfected) {
+        int placeType = place().placeType();
+        getLongAccumulator(PlaceTypeCounters.totalPeople(placeType)).add(totalInPlace);
+        if (numStartedInfected > 0) {
+            getLongAccumulator(PlaceTypeCounters.startedInfected(placeType)).add(numStartedInfected);
+        }
+        if (numGotInfected > 0) {
+            getLongAccumulator(PlaceTypeCounters.gotInfected(placeType)).add(numGotInfected);
+        }
+    }
+
+    /**
+     * Evaluates the contacts of the infectious occupants. The returned events are reused by the
+     * next call.
+     */
+    public TransmissionEvents getWhoToInfect(
+            OccupantState occupants, Globals globals, SeededRandom random) {
+        transmissionEvents.clear();
+        if (occupants.size <= 1) {
+            return transmissionEvents;
         }
 
-        final Optional<Messages.IAmHereMsg> centerOccupant =
-                occupants.stream().filter(msg -> msg.getSender() == this.place().center()).findFirst();
+        final int center = occupants.indexOf(this.place().center());
         if (this.place().networkType() == PlaceInfo.NetworkType.FULLY_CONNECTED_DEPENDENT_ON_CENTER
                 || this.place().networkType() == PlaceInfo.NetworkType.STAR) {
             // The center agent is a no-show, so the event technically does not happen.
             // No infections.
-            if (!centerOccupant.isPresent()) {
-                return ImmutableList.of();
+            if (center < 0) {
+                return transmissionEvents;
             }
         }
 
         double baseInfectionRate =
                 globals.getInfectionRate(this.place().placeType())
                         / globals.tOneDay;
+        ContactSampler.DrawOrder drawOrder = globals.getContactDrawOrder();
+        numPairs = 0;
 
         if (this.place().networkType() == PlaceInfo.NetworkType.STAR) {
-            assert centerOccupant.isPresent();
-            List<Messages.IAmHereMsg> contactedAgents =
-                    DefaultModulesImpl.sample(
-                            DefaultModulesImpl.getAllExcept(occupants, centerOccupant.get()),
-                            globals.numStaffToStudenContacts,
-                            random);
-            for (Messages.IAmHereMsg occupant : contactedAgents) {
-                if (occupant.getSender() == centerOccupant.get().getSender()) {
-                    continue;
+            assert center >= 0;
+            if (globals.sampleStaffToStudentVisitors
+                    && !globals.legacyContactDrawOrder
+                    && occupants.size - 1 <= globals.numStaffToStudenContacts) {
+                // The schedule already sampled who visits the center, so everyone present is a
+                // contact. The legacy draw order samples them with replacement, as it always did.
+                for (int i = 0; i < occupants.size; i++) {
+                    if (i != center) {
+                        addStarPair(occupants, center, i);
+                    }
                 }
-                Messages.IAmHereMsg infected;
-                Messages.IAmHereMsg infectee;
-                if (centerOccupant.get().transmissibilityInfo.isInfectious()) {
-                    infected = centerOccupant.get();
-                    infectee = occupant;
-                } else if (occupant.transmissibilityInfo.isInfectious()) {
-                    infected = occupant;
-                    infectee = centerOccupant.get();
-                } else {
-                    continue;
+            } else {
+                int numContacts = contactSampler.sample(
+                        occupants.size, center, globals.numStaffToStudenContacts, drawOrder, random);
+                int[] contactedAgents = contactSampler.contacts();
+                for (int c = 0; c < numContacts; c++) {
+                    addStarPair(occupants, center, contactedAgents[c]);
                 }
-                toInfect.put(
-                        infectee.getSender(),
-                        ContactEventInfo.create(
-                                // TODO I think infected and infectee need to be swapped in these first two parameters
-                                infected.getSender(),
-                                Optional.of(infectee.getSender()),
-                                this.placeId(),
-                                DefaultModulesImpl.willInfect(infected, infectee, baseInfectionRate, random),
-                                this.placeInfo.placeType(),
-                                globals.outputTransmissions ? infectee.transmissibilityInfo : null,
-                                globals.outputTransmissions ? infected.transmissibilityInfo : null));
             }
         }
 
+        int numEvaluatedPairs = 0;
         if (this.place().networkType() == PlaceInfo.NetworkType.FULLY_CONNECTED
                 || this.place().networkType() == PlaceInfo.NetworkType.FULLY_CONNECTED_DEPENDENT_ON_CENTER) {
-            for (int i = 0; i < occupants.size(); i++) {
-                if (occupants.get(i).transmissibilityInfo.isInfectious()) {
-                    List<Messages.IAmHereMsg> contactedAgents =
-                            DefaultModulesImpl.sample(
-                                    DefaultModulesImpl.getAllExcept(occupants, occupants.get(i)),
-                                    occupants.get(i).transmissibilityInfo.contactRate(),
-                                    random);
-                    for (Messages.IAmHereMsg otherAgent : contactedAgents) {
-                        toInfect.put(
-                                otherAgent.getSender(),
-                                ContactEventInfo.create(
-                                        otherAgent.getSender(),
-                                        Optional.of(occupants.get(i).getSender()),
-                                        this.placeId(),
-                                        DefaultModulesImpl.willInfect(occupants.get(i), otherAgent, baseInfectionRate, random),
-                                        this.placeInfo.placeType(),
-                                        globals.outputTransmissions ? otherAgent.transmissibilityInfo : null,
-                                        globals.outputTransmissions ? occupants.get(i).transmissibilityInfo : null));
+            for (int i = 0; i < occupants.size; i++) {
+                if (occupants.infectious[i]) {
+                    int numContacts = contactSampler.sample(
+                            occupants.size, i, occupants.contactRate[i], drawOrder, random);
+                    int[] contactedAgents = contactSampler.contacts();
+                    for (int c = 0; c < numContacts; c++) {
+                        addPair(i, contactedAgents[c]);
+                    }
+                    if (drawOrder == ContactSampler.DrawOrder.LEGACY) {
+                        // Each occupant's contacts are evaluated before the next occupant's are
+                        // sampled, so the draws are made in the same order as they always were.
+                        transmissionKernel.evaluate(
+                                occupants, pairInfected, pairInfectee, numEvaluatedPairs, numPairs,
+                                baseInfectionRate, random);
+                        numEvaluatedPairs = numPairs;
                     }
                 }
             }
         }
-        return ImmutableList.sortedCopyOf(
-                Comparator.comparingLong(ContactEventInfo::infected), toInfect.values());
-    }
 
-    public Optional<ValueChangeContactEvent> getValueExchangeContact(Messages.IAmHereMsg agent1, Messages.IAmHereMsg agent2, Globals globals, SeededRandom random) {
-        double coin = random.uniform(0, 1).sample();
-        if (coin > globals.infoExchangeLikelihood) {
-            return Optional.empty();
+        BitSet transmissions = transmissionKernel.evaluate(
+                occupants, pairInfected, pairInfectee, numEvaluatedPairs, numPairs,
+                baseInfectionRate, random);
+
+        // A later contact with the same infectee replaces an earlier one.
+        boolean star = this.place().networkType() == PlaceInfo.NetworkType.STAR;
+        for (int k = 0; k < numPairs; k++) {
+            int infected = pairInfected[k];
+            int infectee = pairInfectee[k];
+            transmissionEvents.put(
+                    occupants.ids[infectee],
+                    // TODO I think infected and infectee need to be swapped in these two parameters
+                    // for STAR places
+                    occupants.ids[star ? infected : infectee],
+                    occupants.ids[star ? infectee : infected],
+                    infectee,
+                    infected,
+                    transmissions.get(k));
         }
+        return transmissionEvents;
+    }
 
-        boolean agent1Wins = random.uniform(0, 1).sample() < 0.5;
-        Messages.IAmHereMsg winnerAgent = agent1Wins ? agent1 : agent2;
-        Messages.IAmHereMsg loserAgent = agent1Wins ? agent2 : agent1;
+    private void addStarPair(OccupantState occupants, int center, int occupant) {
+        if (occupants.infectious[center]) {
+            addPair(center, occupant);
+        } else if (occupants.infectious[occupant]) {
+            addPair(occupant, center);
+        }
+    }
 
-        double newAffiliationValue = winnerAgent.transmissibilityInfo.affiliationSpectrum();
-        return Optional.of(
-                ValueChangeContactEvent.create(loserAgent.getSender(),
-                        newAffiliationValue));
+    private void addPair(int infected, int infectee) {
+        if (numPairs == pairInfected.length) {
+            pairInfected = Arrays.copyOf(pairInfected, numPairs * 2);
+            pairInfectee = Arrays.copyOf(pairInfectee, numPairs * 2);
+        }
+        pairInfected[numPairs] = infected;
+        pairInfectee[numPairs] = infectee;
+        numPairs++;
     }
 
+    /**
+     * Only called when {@link OpinionDynamics#isActive}, see {@link OpinionDynamics#exchangeAffiliations}.
+     */
     public Collection<ValueChangeContactEvent> getValueChangeContacts(
-            List<Messages.IAmHereMsg> occupantsOrig, Globals globals, SeededRandom random) {
+            OccupantState occupants, Globals globals, SeededRandom random) {
 
-        List<Messages.IAmHereMsg> occupants = processConformity(occupantsOrig, random, globals);
-        HashMap<Long, List<ValueChangeContactEvent>> toReturn = new HashMap<>();
-
-        if (occupants.size() <= 1) {
+        if (occupants.size <= 1) {
             return ImmutableList.of();
         }
 
-        final Optional<Messages.IAmHereMsg> centerOccupant =
-                occupants.stream().filter(msg -> msg.getSender() == this.place().center()).findFirst();
+        int center = occupants.indexOf(this.place().center());
         if (this.place().networkType() == PlaceInfo.NetworkType.FULLY_CONNECTED_DEPENDENT_ON_CENTER
                 || this.place().networkType() == PlaceInfo.NetworkType.STAR) {
             // The center agent is a no-show, so the event technically does not happen.
             // No infections.
-            if (!centerOccupant.isPresent()) {
+            if (center < 0) {
                 return ImmutableList.of();
             }
         }
 
-
-        if (this.place().networkType() == PlaceInfo.NetworkType.STAR) {
-            assert centerOccupant.isPresent();
-            List<Messages.IAmHereMsg> contactedAgents =
-                    DefaultModulesImpl.sample(
-                            DefaultModulesImpl.getAllExcept(occupants, centerOccupant.get()),
-                            globals.infoExchangeContactRate,
-                            random);
-            for (Messages.IAmHereMsg occupant : contactedAgents) {
-                if (occupant.getSender() == centerOccupant.get().getSender()) {
-                    continue;
-                }
-                Messages.IAmHereMsg agent1 = centerOccupant.get();
-                Messages.IAmHereMsg agent2 = occupant;
-                this.getValueExchangeContact(agent1, agent2, globals, random).ifPresent(
-                        contact -> {
-                            if (!toReturn.containsKey(contact.alterId())) {
-                                toReturn.put(contact.alterId(), new ArrayList<>());
-                            }
-                            toReturn.get(contact.alterId()).add(contact);
-                        }
-                );
-            }
-        }
-
-        if (this.place().networkType() == PlaceInfo.NetworkType.FULLY_CONNECTED
-                || this.place().networkType() == PlaceInfo.NetworkType.FULLY_CONNECTED_DEPENDENT_ON_CENTER) {
-            for (int i = 0; i < occupants.size(); i++) {
-                List<Messages.IAmHereMsg> contactedAgents =
-                        DefaultModulesImpl.sample(
-                                DefaultModulesImpl.getAllExcept(occupants, occupants.get(i)),
-                                globals.infoExchangeContactRate,
-                                random);
-                for (Messages.IAmHereMsg otherAgent : contactedAgents) {
-                    this.getValueExchangeContact(occupants.get(i), otherAgent, globals, random).ifPresent(
-                            contact -> {
-                                if (!toReturn.containsKey(contact.alterId())) {
-                                    toReturn.put(contact.alterId(), new ArrayList<>());
-                                }
-                                toReturn.get(contact.alterId()).add(contact);
-                            }
-                    );
-                }
-            }
-        }
-
-        ImmutableList.Builder<ValueChangeContactEvent> builder = new ImmutableList.Builder<>();
-        for (Map.Entry<Long, List<ValueChangeContactEvent>> entry : toReturn.entrySet()) {
-            if (entry.getValue().size() == 1) {
-                builder.add(entry.getValue().get(0));
-                continue;
-            }
-
-            OptionalDouble averageValueAffiliation = entry.getValue().stream()
-                    .mapToDouble(ValueChangeContactEvent::alterNewAffiliationValue)
-                    .average();
-            if (!averageValueAffiliation.isPresent()) {
-                continue; // Shouldn't happen
-            }
-            builder.add(ValueChangeContactEvent.create(entry.getKey(), averageValueAffiliation.getAsDouble()));
-        }
-
-        return ImmutableList.sortedCopyOf(
-                Comparator.comparingLong(ValueChangeContactEvent::alterId), builder.build());
+        return OpinionDynamics.exchangeAffiliations(
+                occupants,
+                this.place().networkType() == PlaceInfo.NetworkType.STAR ? center : -1,
+                contactSampler,
+                globals,
+                random);
     }
 }
@@ -1,5 +1,7 @@
 package core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 
@@ -22,6 +24,10 @@ public class PlaceInfo {
   private final String debugNotes;
   private long placeAgent;
   private int capacity;
+  // Null unless the place was split with splitIntoShards. The first shard is this place.
+  private PlaceInfo[] shards;
+  // Set by setEnclosingPlaces.
+  private PlaceInfo[] enclosingPlaces = new PlaceInfo[0];
 
   /**
    * A unique id for the place.
@@ -80,6 +86,85 @@ public class PlaceInfo {
 
   public int capacity() { return capacity; }
 
+  /**
+   * Splits the place into {@code numShards} places of the same type, each handled by its own
+   * PlaceAgent. This place stays the first shard, and the other shards are returned so they can be
+   * given PlaceAgents too.
+   * <p>
+   * People keep this place in their schedules and are sent to a shard with {@link #shardFor}.
+   */
+  public List<PlaceInfo> splitIntoShards(int numShards) {
+    if (shards != null) {
+      throw new IllegalStateException("Place " + placeName + " is already split into shards.");
+    }
+    if (numShards < 2) {
+      throw new IllegalArgumentException("A place needs to be split into at least two shards.");
+    }
+    int shardCapacity = capacity == -1 ? -1 : (capacity + numShards - 1) / numShards;
+    shards = new PlaceInfo[numShards];
+    shards[0] = this;
+    List<PlaceInfo> newShards = new ArrayList<>();
+    for (int i = 1; i < numShards; i++) {
+      shards[i] = new PlaceInfo(
+          placeName + "_shard" + i, placeType, placeOptionality, networkType, center, debugNotes,
+          shardCapacity);
+      newShards.add(shards[i]);
+    }
+    return newShards;
+  }
+
+  public int numShards() {
+    return shards == null ? 1 : shards.length;
+  }
+
+  /** Returns shard {@code i}, for {@code i} below {@link #numShards}. Shard 0 is this place. */
+  public PlaceInfo shard(int i) {
+    return shards == null ? this : shards[i];
+  }
+
+  /**
+   * The shard a person is in at a time step. People are reassigned to shards by hash every step, so
+   * over time everyone at the place can be in contact with everyone else, and the number of contacts
+   * a person makes at each visit does not change. Returns this place if it is not split.
+   */
+  public PlaceInfo shardFor(long personId, int tStep) {
+    if (shards == null) {
+      return this;
+    }
+    long h = personId * 0x9E3779B97F4A7C15L + tStep;
+    h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return shards[(int) Math.floorMod(h, (long) shards.length)];
+  }
+
+  /**
+   * Sets the places that contain this place, directly or not: whenever this place is active,
+   * everyone at it is at the enclosing places too. People at this place and some of its enclosing
+   * places report only to this place, which forwards them to the others with {@link
+   * PlaceAgent#forwardOccupants}.
+   */
+  public void setEnclosingPlaces(List<PlaceInfo> enclosingPlaces) {
+    this.enclosingPlaces = enclosingPlaces.toArray(new PlaceInfo[0]);
+  }
+
+  public int numEnclosingPlaces() {
+    return enclosingPlaces.length;
+  }
+
+  public PlaceInfo enclosingPlace(int i) {
+    return enclosingPlaces[i];
+  }
+
+  /** Returns the index of {@code place} in the enclosing places, or -1 if it is not one of them. */
+  public int indexOfEnclosingPlace(PlaceInfo place) {
+    for (int i = 0; i < enclosingPlaces.length; i++) {
+      if (enclosingPlaces[i] == place) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   public void receivePlaceAgent(long agentId) {
     this.placeAgent = agentId;
   }
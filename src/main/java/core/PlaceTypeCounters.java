@@ -0,0 +1,28 @@
+package core;
+
+/**
+ * Names of the long accumulators that aggregate, per place type, how many people were at places
+ * and how many of them were infected before and during the step. Every {@link PlaceAgent} adds to
+ * them, and {@link CentralAgent#processPlaceInfectionRates} reads the totals.
+ *
+ * <p>The accumulators are created by {@link VIVIDCoreModel#createPlaceTypeCounters(int)}.
+ */
+public final class PlaceTypeCounters {
+
+  public static String totalPeople(int placeType) {
+    return "placeTypeTotalPeople" + placeType;
+  }
+
+  public static String startedInfected(int placeType) {
+    return "placeTypeStartedInfected" + placeType;
+  }
+
+  public static String gotInfected(int placeType) {
+    return "placeTypeGotInfected" + placeType;
+  }
+
+  // Prevent individual instances of class
+  private PlaceTypeCounters() {
+
+  }
+}
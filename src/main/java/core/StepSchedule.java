@@ -0,0 +1,182 @@
+package core;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The places a person goes to at each step of their schedule, stored as compressed rows: the
+ * places at step {@code s} are {@code places[offsets[s]]} to {@code places[offsets[s + 1] - 1]}.
+ *
+ * <p>Many people share the same schedule, e.g. suite-mates or students in the same course
+ * sections, so schedules are built through an {@link Interner} and shared between them.
+ */
+public final class StepSchedule {
+  private static final StepSchedule EMPTY = new StepSchedule(new int[] {0}, new PlaceInfo[0]);
+
+  private final int[] offsets;
+  private final PlaceInfo[] places;
+  // Built on first use, as the place ids are only known once the PlaceAgents exist.
+  private volatile ImmutableList<ImmutableList<PlaceInfo>> sortedByPlaceId;
+
+  private StepSchedule(int[] offsets, PlaceInfo[] places) {
+    this.offsets = offsets;
+    this.places = places;
+  }
+
+  public static StepSchedule empty() {
+    return EMPTY;
+  }
+
+  /** Creates a schedule with {@code placesAtStep.get(s)} as the places at step {@code s}. */
+  public static StepSchedule of(List<? extends List<PlaceInfo>> placesAtStep) {
+    int[] offsets = new int[placesAtStep.size() + 1];
+    for (int step = 0; step < placesAtStep.size(); step++) {
+      offsets[step + 1] = offsets[step] + placesAtStep.get(step).size();
+    }
+    PlaceInfo[] places = new PlaceInfo[offsets[placesAtStep.size()]];
+    for (int step = 0; step < placesAtStep.size(); step++) {
+      List<PlaceInfo> placesThisStep = placesAtStep.get(step);
+      for (int i = 0; i < placesThisStep.size(); i++) {
+        places[offsets[step] + i] = placesThisStep.get(i);
+      }
+    }
+    return new StepSchedule(offsets, places);
+  }
+
+  public int numSteps() {
+    return offsets.length - 1;
+  }
+
+  /** Returns an unmodifiable view of the places at {@code step}. */
+  public List<PlaceInfo> placesAtStep(int step) {
+    return new Slice(offsets[step], offsets[step + 1]);
+  }
+
+  /**
+   * Returns the places at {@code step} sorted by {@link PlaceInfo#placeId()}. The lists are sorted
+   * once for all the people sharing this schedule, and the same list is returned every time.
+   */
+  public ImmutableList<PlaceInfo> placesAtStepSortedByPlaceId(int step) {
+    ImmutableList<ImmutableList<PlaceInfo>> sorted = sortedByPlaceId;
+    if (sorted == null) {
+      sorted = sortByPlaceId();
+    }
+    return sorted.get(step);
+  }
+
+  private synchronized ImmutableList<ImmutableList<PlaceInfo>> sortByPlaceId() {
+    if (sortedByPlaceId == null) {
+      ImmutableList.Builder<ImmutableList<PlaceInfo>> sorted = ImmutableList.builder();
+      for (int step = 0; step < numSteps(); step++) {
+        sorted.add(
+            ImmutableList.sortedCopyOf(
+                Comparator.comparingLong(PlaceInfo::placeId), placesAtStep(step)));
+      }
+      sortedByPlaceId = sorted.build();
+    }
+    return sortedByPlaceId;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof StepSchedule)) return false;
+    StepSchedule that = (StepSchedule) o;
+    return Arrays.equals(offsets, that.offsets) && Arrays.equals(places, that.places);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(offsets) + Arrays.hashCode(places);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("StepSchedule{");
+    for (int step = 0; step < numSteps(); step++) {
+      sb.append(step == 0 ? "" : ", ").append(step).append('=').append(placesAtStep(step));
+    }
+    return sb.append('}').toString();
+  }
+
+  /**
+   * Returns the same instance for schedules that go to the same {@link PlaceInfo} objects at every
+   * step. Places are compared by identity, as distinct places can be equal before their ids are
+   * set.
+   */
+  public static final class Interner {
+    private final Map<IdentityKey, StepSchedule> schedules = new HashMap<>();
+
+    public StepSchedule intern(StepSchedule schedule) {
+      return schedules.computeIfAbsent(new IdentityKey(schedule), key -> schedule);
+    }
+
+    public int size() {
+      return schedules.size();
+    }
+  }
+
+  private static final class IdentityKey {
+    private final StepSchedule schedule;
+    private final int hash;
+
+    IdentityKey(StepSchedule schedule) {
+      this.schedule = schedule;
+      int hash = Arrays.hashCode(schedule.offsets);
+      for (PlaceInfo place : schedule.places) {
+        hash = 31 * hash + System.identityHashCode(place);
+      }
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof IdentityKey)) return false;
+      StepSchedule other = ((IdentityKey) o).schedule;
+      if (!Arrays.equals(schedule.offsets, other.offsets)) {
+        return false;
+      }
+      for (int i = 0; i < schedule.places.length; i++) {
+        if (schedule.places[i] != other.places[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private final class Slice extends AbstractList<PlaceInfo> implements RandomAccess {
+    private final int from;
+    private final int to;
+
+    Slice(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public PlaceInfo get(int index) {
+      if (index < 0 || index >= to - from) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+      }
+      return places[from + index];
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+}
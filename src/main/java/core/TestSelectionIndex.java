@@ -0,0 +1,255 @@
+package core;
+
+import simudyne.core.rng.SeededRandom;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Test selection multipliers by agent id, indexed for weighted sampling without replacement.
+ *
+ * <p>Agents get a dense slot in insertion order, and a Fenwick tree over the slots gives prefix
+ * sums of the multipliers in O(log N). Removing an agent only clears its slot, so slots are never
+ * reused. As a {@link Map} it iterates in insertion order, like a {@link
+ * java.util.LinkedHashMap}. The map is read-only, so that {@link Modules#getAgentsToTest} can't
+ * change the multipliers; they are only updated from within this package.
+ *
+ * <p>The tree and the sum of the multipliers are updated incrementally, so they drift from the
+ * multipliers by rounding. They are rebuilt from the multipliers once there have been as many
+ * updates as slots, which keeps updates amortized O(log N).
+ */
+public final class TestSelectionIndex extends AbstractMap<Long, Double> {
+  // Draws that land on an agent that can't be sampled are repeated this many times, then scanned.
+  private static final int MAX_REDRAWS = 8;
+  private static final int MIN_UPDATES_BETWEEN_REBUILDS = 1024;
+
+  private final Map<Long, Integer> slotOfAgent = new HashMap<>();
+  private long[] ids = new long[16];
+  private double[] weights = new double[16];
+  private boolean[] present = new boolean[16];
+  // 1-based Fenwick tree over weights.
+  private double[] tree = new double[17];
+  private int numSlots;
+  private double sumMultipliers;
+  // Agents with a multiplier above 0.
+  private int numSamplable;
+  private int numUpdatesSinceRebuild;
+
+  public static TestSelectionIndex copyOf(Map<Long, Double> testSelectionMultipliers) {
+    TestSelectionIndex index = new TestSelectionIndex();
+    testSelectionMultipliers.forEach(index::setMultiplier);
+    return index;
+  }
+
+  /**
+   * Samples up to {@code numToSample} agents without replacement, each draw picking an agent with
+   * probability proportional to their multiplier among the agents not yet picked. Agents with a
+   * multiplier of 0 are never picked.
+   *
+   * <p>Each draw takes a uniform value below the sum of the remaining multipliers and picks the
+   * first agent, in insertion order, at which the running sum exceeds it. This is the same choice,
+   * for the same draws, as scanning the multipliers in order. Sampled agents are taken out of the
+   * tree while sampling and put back after, so sampling k agents takes O(k log N).
+   */
+  public Set<Long> sample(long numToSample, SeededRandom random) {
+    Set<Long> sampled = new HashSet<>();
+    int[] sampledSlots = new int[(int) Math.min(numToSample, numSamplable)];
+    double sumSampled = 0;
+
+    while (sampled.size() < sampledSlots.length) {
+      double selection = random.uniform(0, sumMultipliers - sumSampled).sample();
+      int slot = findSlot(selection);
+      // Rounding can put the selection past the last remaining agent or on an agent without a
+      // multiplier left. The draw is then repeated, and made by scanning if that keeps happening.
+      for (int redraw = 0; !isSamplable(slot, sampled); redraw++) {
+        selection = random.uniform(0, sumMultipliers - sumSampled).sample();
+        slot = redraw < MAX_REDRAWS ? findSlot(selection) : scanSlot(selection, sampled);
+      }
+      sampledSlots[sampled.size()] = slot;
+      sampled.add(ids[slot]);
+      sumSampled += weights[slot];
+      add(tree, slot, -weights[slot]);
+    }
+    for (int slot : sampledSlots) {
+      add(tree, slot, weights[slot]);
+    }
+    countUpdates(2 * sampledSlots.length);
+    return sampled;
+  }
+
+  private boolean isSamplable(int slot, Set<Long> sampled) {
+    return slot < numSlots && present[slot] && weights[slot] > 0 && !sampled.contains(ids[slot]);
+  }
+
+  // The first agent not sampled yet at which the running sum of the multipliers exceeds the
+  // selection, or the last one if the selection is past all of them.
+  private int scanSlot(double selection, Set<Long> sampled) {
+    double runningSum = 0;
+    int lastSamplable = -1;
+    for (int slot = 0; slot < numSlots; slot++) {
+      if (isSamplable(slot, sampled)) {
+        lastSamplable = slot;
+        runningSum += weights[slot];
+        if (selection < runningSum) {
+          return slot;
+        }
+      }
+    }
+    return lastSamplable;
+  }
+
+  /** Sets the multiplier of the agent, adding them if they are not indexed yet. */
+  void setMultiplier(long agentId, double multiplier) {
+    Integer slot = slotOfAgent.get(agentId);
+    if (slot == null) {
+      if (numSlots == ids.length) {
+        grow();
+      }
+      slot = numSlots++;
+      slotOfAgent.put(agentId, slot);
+      ids[slot] = agentId;
+      weights[slot] = multiplier;
+      present[slot] = true;
+      add(tree, slot, multiplier);
+      sumMultipliers += multiplier;
+      numSamplable += multiplier > 0 ? 1 : 0;
+      countUpdates(1);
+      return;
+    }
+    double previous = weights[slot];
+    weights[slot] = multiplier;
+    add(tree, slot, multiplier - previous);
+    sumMultipliers += multiplier - previous;
+    numSamplable += (multiplier > 0 ? 1 : 0) - (previous > 0 ? 1 : 0);
+    countUpdates(1);
+  }
+
+  void removeAgent(long agentId) {
+    Integer slot = slotOfAgent.remove(agentId);
+    if (slot == null) {
+      return;
+    }
+    double previous = weights[slot];
+    present[slot] = false;
+    weights[slot] = 0;
+    add(tree, slot, -previous);
+    sumMultipliers -= previous;
+    numSamplable -= previous > 0 ? 1 : 0;
+    countUpdates(1);
+  }
+
+  @Override
+  public Double get(Object agentId) {
+    Integer slot = slotOfAgent.get(agentId);
+    return slot == null ? null : weights[slot];
+  }
+
+  @Override
+  public boolean containsKey(Object agentId) {
+    return slotOfAgent.containsKey(agentId);
+  }
+
+  @Override
+  public int size() {
+    return slotOfAgent.size();
+  }
+
+  @Override
+  public Set<Entry<Long, Double>> entrySet() {
+    return new AbstractSet<Entry<Long, Double>>() {
+      @Override
+      public Iterator<Entry<Long, Double>> iterator() {
+        return new Iterator<Entry<Long, Double>>() {
+          private int next = nextPresent(0);
+
+          @Override
+          public boolean hasNext() {
+            return next < numSlots;
+          }
+
+          @Override
+          public Entry<Long, Double> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Entry<Long, Double> entry = new SimpleImmutableEntry<>(ids[next], weights[next]);
+            next = nextPresent(next + 1);
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return slotOfAgent.size();
+      }
+    };
+  }
+
+  private int nextPresent(int slot) {
+    while (slot < numSlots && !present[slot]) {
+      slot++;
+    }
+    return slot;
+  }
+
+  // The first slot at which the running sum of the tree exceeds the selection, or numSlots if none.
+  private int findSlot(double selection) {
+    int position = 0;
+    double remaining = selection;
+    for (int step = Integer.highestOneBit(Math.max(numSlots, 1)); step > 0; step >>= 1) {
+      int next = position + step;
+      if (next <= numSlots && tree[next] <= remaining) {
+        position = next;
+        remaining -= tree[next];
+      }
+    }
+    return position;
+  }
+
+  private static void add(double[] fenwickTree, int slot, double delta) {
+    for (int i = slot + 1; i < fenwickTree.length; i += i & -i) {
+      fenwickTree[i] += delta;
+    }
+  }
+
+  private void grow() {
+    int capacity = ids.length * 2;
+    ids = Arrays.copyOf(ids, capacity);
+    weights = Arrays.copyOf(weights, capacity);
+    present = Arrays.copyOf(present, capacity);
+    tree = new double[capacity + 1];
+    rebuild();
+  }
+
+  private void countUpdates(int numUpdates) {
+    numUpdatesSinceRebuild += numUpdates;
+    if (numUpdatesSinceRebuild > Math.max(numSlots, MIN_UPDATES_BETWEEN_REBUILDS)) {
+      rebuild();
+    }
+  }
+
+  // Rebuilds the tree and the sum of the multipliers from the multipliers, in O(N).
+  private void rebuild() {
+    Arrays.fill(tree, 0);
+    sumMultipliers = 0;
+    for (int slot = 0; slot < numSlots; slot++) {
+      tree[slot + 1] = weights[slot];
+      sumMultipliers += weights[slot];
+    }
+    for (int i = 1; i < tree.length; i++) {
+      int parent = i + (i & -i);
+      if (parent < tree.length) {
+        tree[parent] += tree[i];
+      }
+    }
+    numUpdatesSinceRebuild = 0;
+  }
+}
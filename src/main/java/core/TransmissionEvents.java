@@ -0,0 +1,195 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The contacts evaluated at a place in one step, at most one per infectee. Adding a contact for an
+ * infectee that already has one replaces it, so the last contact evaluated for a person decides
+ * whether they are infected.
+ *
+ * <p>Contacts are kept in parallel arrays indexed by slot, and infectees are mapped to their slot
+ * with an open addressing table keyed by person id, so no boxing is needed. {@link ContactEventInfo}
+ * is only built on request, see {@link #toContactEventInfo}.
+ *
+ * <p>Each {@link PlaceAgent} keeps its own instance, which is cleared and refilled every step.
+ */
+public final class TransmissionEvents {
+  // Below this size, transmissions are ordered by insertion sort.
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private int size;
+  // Id of the person sent the Messages.InfectionMsg, and of the person credited with infecting them.
+  private long[] recipient = new long[8];
+  private long[] source = new long[8];
+  // Occupant indices of the infectee and of the infectious person of the contact.
+  private int[] infecteeIndex = new int[8];
+  private int[] infectedIndex = new int[8];
+  private boolean[] transmitted = new boolean[8];
+  private int[] tablePosition = new int[8];
+
+  // Open addressing table from infectee id to slot + 1, 0 marking an empty position.
+  private long[] tableKeys = new long[16];
+  private int[] tableSlots = new int[16];
+
+  private int[] order = new int[8];
+  private int[] mergeBuffer = new int[8];
+
+  public void clear() {
+    for (int slot = 0; slot < size; slot++) {
+      tableSlots[tablePosition[slot]] = 0;
+    }
+    size = 0;
+  }
+
+  /**
+   * Records a contact between the infectious occupant {@code infectedIndex} and the occupant {@code
+   * infecteeIndex}, replacing any contact already recorded for {@code infecteeId}.
+   */
+  public void put(
+      long infecteeId,
+      long recipient,
+      long source,
+      int infecteeIndex,
+      int infectedIndex,
+      boolean transmitted) {
+    int position = find(infecteeId);
+    int slot = tableSlots[position] - 1;
+    if (slot < 0) {
+      if (size == this.recipient.length) {
+        grow();
+        position = find(infecteeId);
+      }
+      slot = size++;
+      tableKeys[position] = infecteeId;
+      tableSlots[position] = slot + 1;
+      tablePosition[slot] = position;
+    }
+    this.recipient[slot] = recipient;
+    this.source[slot] = source;
+    this.infecteeIndex[slot] = infecteeIndex;
+    this.infectedIndex[slot] = infectedIndex;
+    this.transmitted[slot] = transmitted;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Orders the contacts that resulted in a transmission by recipient id, ties broken by the order
+   * their infectees were first added.
+   *
+   * @return the number of slots written to {@link #transmittedInOrder()}
+   */
+  public int sortTransmitted() {
+    if (order.length < size) {
+      order = new int[recipient.length];
+      mergeBuffer = new int[recipient.length];
+    }
+    int numTransmitted = 0;
+    for (int slot = 0; slot < size; slot++) {
+      if (transmitted[slot]) {
+        order[numTransmitted++] = slot;
+      }
+    }
+    sort(0, numTransmitted);
+    return numTransmitted;
+  }
+
+  /** The slots ordered by the last call to {@link #sortTransmitted}. */
+  public int[] transmittedInOrder() {
+    return order;
+  }
+
+  public long recipient(int slot) {
+    return recipient[slot];
+  }
+
+  public long source(int slot) {
+    return source[slot];
+  }
+
+  public boolean transmitted(int slot) {
+    return transmitted[slot];
+  }
+
+  public ContactEventInfo toContactEventInfo(
+      int slot, OccupantState occupants, long placeId, int placeType) {
+    return ContactEventInfo.create(
+        recipient[slot],
+        Optional.of(source[slot]),
+        placeId,
+        transmitted[slot],
+        placeType,
+        occupants.transmissibilityInfo(infecteeIndex[slot]),
+        occupants.transmissibilityInfo(infectedIndex[slot]));
+  }
+
+  // Stable merge sort of order[from, to) by recipient id.
+  private void sort(int from, int to) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      for (int i = from + 1; i < to; i++) {
+        int slot = order[i];
+        int j = i - 1;
+        while (j >= from && recipient[order[j]] > recipient[slot]) {
+          order[j + 1] = order[j];
+          j--;
+        }
+        order[j + 1] = slot;
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    sort(from, mid);
+    sort(mid, to);
+    int i = from;
+    int j = mid;
+    int k = from;
+    while (i < mid && j < to) {
+      mergeBuffer[k++] = recipient[order[j]] < recipient[order[i]] ? order[j++] : order[i++];
+    }
+    while (i < mid) {
+      mergeBuffer[k++] = order[i++];
+    }
+    while (j < to) {
+      mergeBuffer[k++] = order[j++];
+    }
+    System.arraycopy(mergeBuffer, from, order, from, to - from);
+  }
+
+  private int find(long key) {
+    int mask = tableKeys.length - 1;
+    int position = hash(key) & mask;
+    while (tableSlots[position] != 0 && tableKeys[position] != key) {
+      position = (position + 1) & mask;
+    }
+    return position;
+  }
+
+  private void grow() {
+    int capacity = recipient.length * 2;
+    recipient = Arrays.copyOf(recipient, capacity);
+    source = Arrays.copyOf(source, capacity);
+    infecteeIndex = Arrays.copyOf(infecteeIndex, capacity);
+    infectedIndex = Arrays.copyOf(infectedIndex, capacity);
+    transmitted = Arrays.copyOf(transmitted, capacity);
+    tablePosition = Arrays.copyOf(tablePosition, capacity);
+
+    // Keep the table at most half full.
+    long[] oldKeys = tableKeys;
+    tableKeys = new long[capacity * 2];
+    tableSlots = new int[capacity * 2];
+    for (int slot = 0; slot < size; slot++) {
+      int position = find(oldKeys[tablePosition[slot]]);
+      tableKeys[position] = oldKeys[tablePosition[slot]];
+      tableSlots[position] = slot + 1;
+      tablePosition[slot] = position;
+    }
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,107 @@
+package core;
+
+import simudyne.core.rng.SeededRandom;
+
+import java.util.BitSet;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Evaluates a batch of contacts at a place and decides which of them transmit the disease. This is
+ * the batched form of {@link DefaultModulesImpl#willInfect(OccupantState, int, int, double,
+ * SeededRandom)}, which is kept as the reference implementation.
+ *
+ * <p>Uniform draws are taken from the PRNG one at a time, when a contact needs them, in the same
+ * order as evaluating the pairs one by one with the reference implementation. Both give the same
+ * outcomes for the same seed and leave the PRNG in the same state. Mask efficiencies are derived
+ * from those draws with the same transform as {@link SeededRandom#uniform}, instead of creating a
+ * distribution per contact.
+ *
+ * <p>Contacts can be evaluated in several calls, e.g. right after each occupant's contacts are
+ * sampled, so that sampling and evaluation draw in the same order as the reference implementation.
+ *
+ * <p>A kernel reuses its buffers, so each {@link PlaceAgent} keeps its own instance. The returned
+ * bitset is overwritten by the next call to {@link #evaluate}.
+ */
+public final class TransmissionKernel {
+  private static final double MASK_OUTWARD_EFFICIENCY_START = 0.7;
+  private static final double MASK_OUTWARD_EFFICIENCY_END = 1;
+  private static final double MASK_INWARD_EFFICIENCY_START = 0.95;
+  private static final double MASK_INWARD_EFFICIENCY_END = 1;
+
+  private final BitSet transmissions = new BitSet();
+
+  /**
+   * Decides for each of the first {@code numPairs} contacts whether {@code infected[k]} infects
+   * {@code infectees[k]}, both indices into {@code occupants}.
+   *
+   * @return the bitset of contacts that resulted in a transmission
+   */
+  public BitSet evaluate(
+      OccupantState occupants,
+      int[] infected,
+      int[] infectees,
+      int numPairs,
+      double baseInfectionRate,
+      SeededRandom random) {
+    transmissions.clear();
+    return evaluate(occupants, infected, infectees, 0, numPairs, baseInfectionRate, random);
+  }
+
+  /**
+   * Decides for the contacts {@code fromPair} to {@code toPair - 1} whether {@code infected[k]} infects
+   * {@code infectees[k]}. Only the bits of these contacts are changed, so a caller evaluating its
+   * contacts in several calls reads the bits of all of them from the returned bitset.
+   *
+   * @return the bitset of contacts that resulted in a transmission
+   */
+  public BitSet evaluate(
+      OccupantState occupants,
+      int[] infected,
+      int[] infectees,
+      int fromPair,
+      int toPair,
+      double baseInfectionRate,
+      SeededRandom random) {
+    transmissions.clear(fromPair, toPair);
+    DoubleSupplier uniform = null;
+
+    for (int k = fromPair; k < toPair; k++) {
+      int from = infected[k];
+      int to = infectees[k];
+      if (!occupants.infectious[from] || !occupants.isSusceptible(to)) {
+        continue;
+      }
+      if (uniform == null) {
+        uniform = random.uniform(0, 1)::sample;
+      }
+
+      double physicalDistancingStrength = occupants.distancing[from] * occupants.distancing[to];
+      if (uniform.getAsDouble() < physicalDistancingStrength) {
+        continue;
+      }
+
+      double pInfectOut = uniform.getAsDouble();
+      double outTransmissionLikelihood = baseInfectionRate;
+      if (occupants.mask[from]) {
+        outTransmissionLikelihood *= 1 - scale(
+            uniform.getAsDouble(), MASK_OUTWARD_EFFICIENCY_START, MASK_OUTWARD_EFFICIENCY_END);
+      }
+      if (pInfectOut < outTransmissionLikelihood) {
+        double inTransmissionLikelihood = 1.0;
+        if (occupants.mask[to]) {
+          inTransmissionLikelihood *= 1 - scale(
+              uniform.getAsDouble(), MASK_INWARD_EFFICIENCY_START, MASK_INWARD_EFFICIENCY_END);
+        }
+        if (uniform.getAsDouble() < inTransmissionLikelihood) {
+          transmissions.set(k);
+        }
+      }
+    }
+    return transmissions;
+  }
+
+  // The transform SeededRandom#uniform(lower, upper) applies to a uniform draw in [0, 1).
+  private static double scale(double u, double lower, double upper) {
+    return u * upper + (1 - u) * lower;
+  }
+}
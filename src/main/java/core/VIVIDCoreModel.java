@@ -2,6 +2,7 @@ package core;
 
 import simudyne.core.abm.AgentBasedModel;
 import simudyne.core.abm.Group;
+import simudyne.core.abm.Section;
 import simudyne.core.abm.Split;
 import simudyne.core.annotations.ModelSettings;
 import simudyne.core.annotations.Variable;
@@ -14,6 +15,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.IntStream;
 
@@ -76,6 +78,8 @@ public abstract class VIVIDCoreModel<T> extends AgentBasedModel<Globals> {
     createLongAccumulator("currentInfectious", "Total number of current infectious agents");
     createLongAccumulator("posTestsReturnedThisStep", "Total number of positive tests returned this step");
     createLongAccumulator("totTestsReturnedThisStep", "Total number of tests returned this step");
+    createLongAccumulator("numPendingTests", "Number of tests waiting for their results");
+    createLongAccumulator("numPendingPosTests", "Number of positive tests waiting for their results");
 
     setModules();
     if (getGlobals().modules == null) {
@@ -112,6 +116,23 @@ public abstract class VIVIDCoreModel<T> extends AgentBasedModel<Globals> {
             .build();
   }
 
+  /**
+   * Creates the {@link PlaceTypeCounters} accumulators. Must be called from {@link #init()} by models
+   * that know their place types.
+   */
+  protected void createPlaceTypeCounters(int numPlaceTypes) {
+    for (int placeType = 0; placeType < numPlaceTypes; placeType++) {
+      createLongAccumulator(
+          PlaceTypeCounters.totalPeople(placeType), "People at places of type " + placeType);
+      createLongAccumulator(
+          PlaceTypeCounters.startedInfected(placeType),
+          "Infected people at places of type " + placeType);
+      createLongAccumulator(
+          PlaceTypeCounters.gotInfected(placeType),
+          "People infected at places of type " + placeType);
+    }
+  }
+
   protected abstract List<Group<? extends Person>> generatePeople();
 
   protected abstract void setupPlaces();
@@ -131,11 +152,13 @@ public abstract class VIVIDCoreModel<T> extends AgentBasedModel<Globals> {
               getGlobals().centralAgentID = ca.getID();
             });
 
-    for (Group<? extends Person> personGroup : personGroups) {
-      centralAgentGroup.fullyConnected(
-          personGroup,
-          Links.CentralAgentLink.class); // uni-directional link: Central agent to the student
-      personGroup.fullyConnected(centralAgentGroup, Links.CentralAgentLink.class);
+    if (getGlobals().linkCentralAgentToPeople) {
+      for (Group<? extends Person> personGroup : personGroups) {
+        centralAgentGroup.fullyConnected(
+            personGroup,
+            Links.CentralAgentLink.class); // uni-directional link: Central agent to the student
+        personGroup.fullyConnected(centralAgentGroup, Links.CentralAgentLink.class);
+      }
     }
 
     // This generates a single PlaceAgent that will spawn all of the other PlaceAgents
@@ -182,20 +205,33 @@ public abstract class VIVIDCoreModel<T> extends AgentBasedModel<Globals> {
 
     // Infection step is performed first (based on existing links), because the new added link wont
     // be activated in the current time step.
+    // Person.infoExchange only has an effect when opinion dynamics are active, and PlaceAgents do
+    // not send any InfoExchangeMsg otherwise.
+    // PlaceAgent.forwardOccupants passes people on to the places enclosing the place they reported
+    // to, see Globals#nestPlaces.
+    List<Section> infectionResults = new ArrayList<>();
+    infectionResults.add(Split.create(Person.infectedByCOVID));
+    if (OpinionDynamics.isActive(getGlobals())) {
+      infectionResults.add(Person.infoExchange);
+    }
+    infectionResults.add(Person.infectedSomeoneElseWithCOVID);
     run(
         Person.executeMovement,
+        PlaceAgent.forwardOccupants,
         PlaceAgent.generateContactsAndInfect,
-        Split.create(
-            Split.create(Person.infectedByCOVID),
-            Person.infoExchange,
-            Person.infectedSomeoneElseWithCOVID
-        ),
+        Split.create(infectionResults.toArray(new Section[0])),
         OutputWriterAgent.write);
 
     // Testing stage: People can reports symptoms and request a test from the central agent
     // Central agent then processes and returns the test results with a predefined lag time
     run(CentralAgent.doRandomizedTesting, Person.getTested, CentralAgent.processInfectionStatus);
-    run(CentralAgent.releaseTestResults, Person.getTestPositivity);
+    run(CentralAgent.releaseTestResults);
+    // Everyone reads the same positivity, so it is published in the globals instead of being sent
+    // to each person.
+    getGlobals().testPositivityRate =
+        (double) getLongAccumulator("numPendingPosTests").value()
+            / getLongAccumulator("numPendingTests").value();
+    run(Person.getTestPositivity);
 
     // Counts the current number of infected and infectious agents
     run(Person.countInfected);
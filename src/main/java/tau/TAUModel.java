@@ -8,10 +8,16 @@ import simudyne.core.annotations.Input;
 import simudyne.core.annotations.ModelSettings;
 import simudyne.core.annotations.Variable;
 import simudyne.core.rng.SeededRandom;
+import tau.anylogic_code.CampusSnapshot;
 import tau.anylogic_code.StaticNetworkBuilder;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @ModelSettings(macroStep = 1, timeUnit = "DAYS", start = "2020-09-01T00:00:00Z")
 public class TAUModel extends VIVIDCoreModel<Globals> {
@@ -21,6 +27,7 @@ public class TAUModel extends VIVIDCoreModel<Globals> {
     super.init();
 
     getGlobals().initBuildingInfectionArrays(PlaceType.values().length);
+    createPlaceTypeCounters(PlaceType.values().length);
 
 
     /** Uncomment the following line to print out the output headers to update the csvRunner.py * */
@@ -47,7 +54,9 @@ public class TAUModel extends VIVIDCoreModel<Globals> {
     Group<Faculty> facultyGroup = generateGroup(Faculty.class, universityConfiguration.numFaculty());
     Group<Staff> staffGroup = generateGroup(Staff.class, universityConfiguration.numStaff());
 
-    studentGroup.smallWorldConnected(50, 1.0, Links.SocialLink.class);
+    if (getGlobals().buildStudentSocialLinks) {
+      studentGroup.smallWorldConnected(50, 1.0, Links.SocialLink.class);
+    }
 
     return ImmutableList.of(
         studentGroup,
@@ -554,7 +563,8 @@ public class TAUModel extends VIVIDCoreModel<Globals> {
       return new TAUModules();
     }
 
-    private static final DefaultModulesImpl delegate = DefaultModulesImpl.getInstance();
+    // One per run, so runs with different inputs do not share trajectory models.
+    private final DefaultModulesImpl delegate = DefaultModulesImpl.getInstance();
 
     @Override
     public InfectionTrajectoryDistribution getInfectionTrajectoryDistribution(
@@ -562,18 +572,63 @@ public class TAUModel extends VIVIDCoreModel<Globals> {
       return delegate.getInfectionTrajectoryDistribution(person, globals);
     }
 
+    @Override
+    public InfectionTrajectoryModel getInfectionTrajectoryModel(Person person, Globals globals) {
+      return delegate.getInfectionTrajectoryModel(person, globals);
+    }
+
+    private static final Logger logger = Logger.getLogger(TAUModules.class.getName());
+
     private StaticNetworkBuilder builder = new StaticNetworkBuilder();
+    // Set if the campus is saved to or loaded from a snapshot.
+    private Path snapshotFile;
+    private CampusSnapshot.Campus snapshotCampus;
 
     @Override
     public long createConnectionOfAgents(List<Person> allPeople, Globals globals) {
+      if (!globals.campusSnapshotDirectory.isEmpty()) {
+        snapshotFile =
+            Paths.get(
+                globals.campusSnapshotDirectory, CampusSnapshot.fileName(allPeople, globals));
+        // The snapshot is read before the builder is dropped, so that the campus is built if the
+        // snapshot can't be read.
+        try {
+          CampusSnapshot snapshot = CampusSnapshot.load(snapshotFile);
+          if (snapshot != null) {
+            snapshotCampus = snapshot.read();
+          }
+        } catch (IOException | RuntimeException e) {
+          logger.log(
+              Level.WARNING,
+              "Could not read the campus snapshot " + snapshotFile + ", building the campus.",
+              e);
+        }
+        if (snapshotCampus != null) {
+          builder = null;
+          return snapshotCampus.numConnections();
+        }
+      }
       return builder.createConnectionOfAgents(allPeople, globals);
     }
 
     @Override
     public Map<Long, Person.DailySchedule> createPlacesAndPersonDailySchedules(
         Globals globals) {
+      if (snapshotCampus != null) {
+        Map<Long, Person.DailySchedule> scheduleMap = snapshotCampus.dailySchedules();
+        globals.uninitializedPlaceInfos.addAll(snapshotCampus.places());
+        snapshotCampus = null;
+        return scheduleMap;
+      }
       Map<Long, Person.DailySchedule> scheduleMap =
           builder.createPlacesAndPersonDailySchedules();
+      if (snapshotFile != null) {
+        try {
+          builder.writeSnapshot(snapshotFile, scheduleMap);
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Could not write the campus snapshot " + snapshotFile + ".", e);
+        }
+      }
 
       Set<PlaceInfo> allPlaceInfos = builder.getAllPlaces();
       globals.uninitializedPlaceInfos.addAll(allPlaceInfos);
@@ -595,7 +650,7 @@ public class TAUModel extends VIVIDCoreModel<Globals> {
     @Override
     public Set<Long> getAgentsToTest(
         Set<Long> symptomaticAgentsToday,
-        Map<Long, Double> testSelectionMultipliers,
+        TestSelectionIndex testSelectionMultipliers,
         SeededRandom random,
         Globals globals) {
       return delegate.getAgentsToTest(
@@ -604,7 +659,7 @@ public class TAUModel extends VIVIDCoreModel<Globals> {
 
     public Set<Long> getAgentsToTest(
             Set<Long> symptomaticAgentsToday,
-            Map<Long, Double> testSelectionMultipliers,
+            TestSelectionIndex testSelectionMultipliers,
             SeededRandom random,
             long numTestsToRun) {
       return delegate.getAgentsToTest(
@@ -35,13 +35,18 @@ public class Bathroom extends ConnectionOfAgents implements Serializable {
 
   @Override
   public List<Person> getPeople() {
-    people.clear();
+    clearPeople();
     for (ConnectionOfAgents coa : usesBathroom) {
       addPeople(coa.getPeople());
     }
     return super.getPeople();
   }
 
+  @Override
+  public List<? extends ConnectionOfAgents> getChildConnections() {
+    return usesBathroom;
+  }
+
   @Override
   public String toString() {
     return super.toString();
@@ -30,13 +30,18 @@ public class Building extends ConnectionOfAgents implements Serializable {
 
   @Override
   public List<Person> getPeople() {
-    people.clear();
+    clearPeople();
     for (Floor f : floors) {
       addPeople(f.getPeople());
     }
     return super.getPeople();
   }
 
+  @Override
+  public List<? extends ConnectionOfAgents> getChildConnections() {
+    return floors;
+  }
+
   @Override
   public String toString() {
     return super.toString();
@@ -0,0 +1,359 @@
+package tau.anylogic_code;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import core.Globals;
+import core.Person;
+import core.PlaceInfo;
+import core.StepSchedule;
+import tau.UniversityConfiguration;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A campus built by {@link StaticNetworkBuilder}, saved to a binary file so that later runs with
+ * the same inputs can load it instead of building it again. The campus only depends on the people
+ * and on the inputs hashed by {@link #fileName}, as the builder always starts from the same seed.
+ *
+ * <p>Files are memory-mapped once, and the mapped bytes are shared by all runs in the JVM. Only the
+ * bytes are shared: every run deserializes its own places and schedules from them with {@link
+ * #read}, since places are given PlaceAgents per run. At most {@link #MAX_MAPPED_SNAPSHOTS} files
+ * stay mapped, the least recently loaded being dropped first.
+ */
+public final class CampusSnapshot {
+  private static final int MAGIC = 0x54414f43;
+  // Change whenever the format, or the campus built from the same inputs, changes. Snapshots of
+  // other versions are never loaded. CampusSnapshotTest.testVersion fails until it is changed.
+  static final int VERSION = 2;
+  // The magic number, the version, the number of connections, the length of the payload and the
+  // CRC32 of the payload.
+  private static final int HEADER_SIZE = 32;
+
+  private static final int HAS_STUDENT_TYPE = 1;
+  private static final int IS_PART_TIME = 2;
+  private static final int LIVES_ON_CAMPUS = 4;
+  private static final int IS_STAFF_WITH_STUDENT_FACING_JOB = 8;
+
+  // Concurrent runs usually share a single campus, so only a few files are kept mapped.
+  static final int MAX_MAPPED_SNAPSHOTS = 4;
+  private static final Cache<Path, CampusSnapshot> mappedSnapshots =
+      CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(MAX_MAPPED_SNAPSHOTS).build();
+
+  private final ByteBuffer buffer;
+
+  private CampusSnapshot(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /** The name of the snapshot file of the campus built for {@code people} with {@code globals}. */
+  public static String fileName(List<Person> people, Globals globals) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher
+        .putInt(VERSION)
+        .putString(UniversityConfiguration.generate(globals).toString(), StandardCharsets.UTF_8)
+        .putInt(globals.tOneDay)
+        .putInt(globals.placeShardSize)
+        .putBoolean(globals.nestPlaces)
+        .putBoolean(globals.legacyEventAssignment)
+        .putBoolean(globals.sampleStaffToStudentVisitors)
+        .putInt(globals.numStaffToStudenContacts);
+    for (Person person : people) {
+      hasher.putString(person.getClass().getName(), StandardCharsets.UTF_8).putLong(person.personID);
+    }
+    return "campus-" + hasher.hash() + ".bin";
+  }
+
+  /**
+   * Returns the snapshot saved in {@code file}, or null if there is none. The file is only mapped
+   * and checked against its checksum when it is not mapped already.
+   */
+  public static CampusSnapshot load(Path file) throws IOException {
+    CampusSnapshot snapshot = mappedSnapshots.getIfPresent(file);
+    if (snapshot != null) {
+      return snapshot;
+    }
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (!isValid(buffer)) {
+        throw new IOException(file + " is not a valid campus snapshot of version " + VERSION + ".");
+      }
+      snapshot = new CampusSnapshot(buffer);
+    }
+    CampusSnapshot mapped = mappedSnapshots.asMap().putIfAbsent(file, snapshot);
+    return mapped == null ? snapshot : mapped;
+  }
+
+  private static boolean isValid(ByteBuffer buffer) {
+    if (buffer.limit() < HEADER_SIZE
+        || buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION
+        || buffer.getLong(16) != buffer.limit() - HEADER_SIZE) {
+      return false;
+    }
+    ByteBuffer payload = buffer.duplicate();
+    payload.position(HEADER_SIZE);
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return crc.getValue() == buffer.getLong(24);
+  }
+
+  /**
+   * Deserializes new places and schedules from the snapshot. Safe to call from concurrent runs,
+   * which each get their own copy.
+   */
+  public Campus read() {
+    ByteBuffer in = buffer.duplicate();
+    in.position(HEADER_SIZE);
+
+    List<PlaceInfo> places = new ArrayList<>();
+    List<PlaceInfo> unshardedPlaces = new ArrayList<>();
+    int numUnshardedPlaces = in.getInt();
+    for (int i = 0; i < numUnshardedPlaces; i++) {
+      PlaceInfo place =
+          PlaceInfo.create(
+              readString(in),
+              in.getInt(),
+              PlaceInfo.Optionality.values()[in.get()],
+              PlaceInfo.NetworkType.values()[in.get()],
+              in.getLong(),
+              readString(in),
+              in.getInt());
+      int numShards = in.getInt();
+      places.add(place);
+      unshardedPlaces.add(place);
+      if (numShards > 1) {
+        places.addAll(place.splitIntoShards(numShards));
+      }
+    }
+    for (PlaceInfo place : unshardedPlaces) {
+      List<PlaceInfo> enclosingPlaces = readPlaces(in, places);
+      if (!enclosingPlaces.isEmpty()) {
+        place.setEnclosingPlaces(enclosingPlaces);
+      }
+    }
+
+    StepSchedule[] stepSchedules = new StepSchedule[in.getInt()];
+    for (int i = 0; i < stepSchedules.length; i++) {
+      List<List<PlaceInfo>> placesAtStep = new ArrayList<>();
+      int numSteps = in.getInt();
+      for (int step = 0; step < numSteps; step++) {
+        placesAtStep.add(readPlaces(in, places));
+      }
+      stepSchedules[i] = StepSchedule.of(placesAtStep);
+    }
+
+    ImmutableMap.Builder<Long, Person.DailySchedule> dailySchedules = ImmutableMap.builder();
+    int numPeople = in.getInt();
+    for (int i = 0; i < numPeople; i++) {
+      long personId = in.getLong();
+      StepSchedule stepSchedule = stepSchedules[in.getInt()];
+      ImmutableList<PlaceInfo> isolationPlaces = ImmutableList.copyOf(readPlaces(in, places));
+      PersonAttributes attributes = new PersonAttributes();
+      int flags = in.get();
+      if ((flags & HAS_STUDENT_TYPE) != 0) {
+        attributes.studentType = StudentType.values()[in.get()];
+      }
+      attributes.isPartTime = (flags & IS_PART_TIME) != 0;
+      attributes.livesOnCampus = (flags & LIVES_ON_CAMPUS) != 0;
+      attributes.livesAtBuilding = readString(in);
+      attributes.isStaffWithStudentFacingJob = (flags & IS_STAFF_WITH_STUDENT_FACING_JOB) != 0;
+      dailySchedules.put(
+          personId, Person.DailySchedule.create(stepSchedule, isolationPlaces, attributes::apply));
+    }
+    return Campus.create(buffer.getLong(8), ImmutableSet.copyOf(places), dailySchedules.build());
+  }
+
+  /**
+   * Saves a campus to {@code file}, replacing any snapshot loaded from it. The file is written next
+   * to {@code file} first and then moved in place, so that runs never load a partly written
+   * snapshot.
+   */
+  static void write(
+      Path file,
+      long numConnections,
+      Collection<PlaceInfo> places,
+      Map<Long, Person.DailySchedule> dailySchedules,
+      Map<Long, PersonAttributes> attributesOfPeople)
+      throws IOException {
+    // Shards are created again by splitting the place they belong to.
+    Set<PlaceInfo> shards = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (PlaceInfo place : places) {
+      for (int i = 1; i < place.numShards(); i++) {
+        shards.add(place.shard(i));
+      }
+    }
+    List<PlaceInfo> unshardedPlaces = new ArrayList<>();
+    Map<PlaceInfo, Integer> placeIndices = new IdentityHashMap<>();
+    for (PlaceInfo place : places) {
+      if (!shards.contains(place)) {
+        unshardedPlaces.add(place);
+        for (int i = 0; i < place.numShards(); i++) {
+          placeIndices.put(place.shard(i), placeIndices.size());
+        }
+      }
+    }
+    Map<StepSchedule, Integer> stepScheduleIndices = new IdentityHashMap<>();
+    List<StepSchedule> stepSchedules = new ArrayList<>();
+    for (Person.DailySchedule dailySchedule : dailySchedules.values()) {
+      if (!stepScheduleIndices.containsKey(dailySchedule.stepSchedule())) {
+        stepScheduleIndices.put(dailySchedule.stepSchedule(), stepSchedules.size());
+        stepSchedules.add(dailySchedule.stepSchedule());
+      }
+    }
+
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(payload)) {
+      out.writeInt(unshardedPlaces.size());
+      for (PlaceInfo place : unshardedPlaces) {
+        writeString(out, place.placeName());
+        out.writeInt(place.placeType());
+        out.writeByte(place.placeOptionality().ordinal());
+        out.writeByte(place.networkType().ordinal());
+        out.writeLong(place.center());
+        writeString(out, place.debugNotes());
+        out.writeInt(place.capacity());
+        out.writeInt(place.numShards());
+      }
+      for (PlaceInfo place : unshardedPlaces) {
+        List<PlaceInfo> enclosingPlaces = new ArrayList<>();
+        for (int i = 0; i < place.numEnclosingPlaces(); i++) {
+          enclosingPlaces.add(place.enclosingPlace(i));
+        }
+        writePlaces(out, enclosingPlaces, placeIndices);
+      }
+
+      out.writeInt(stepSchedules.size());
+      for (StepSchedule stepSchedule : stepSchedules) {
+        out.writeInt(stepSchedule.numSteps());
+        for (int step = 0; step < stepSchedule.numSteps(); step++) {
+          writePlaces(out, stepSchedule.placesAtStep(step), placeIndices);
+        }
+      }
+
+      out.writeInt(dailySchedules.size());
+      for (Map.Entry<Long, Person.DailySchedule> entry : dailySchedules.entrySet()) {
+        out.writeLong(entry.getKey());
+        out.writeInt(stepScheduleIndices.get(entry.getValue().stepSchedule()));
+        writePlaces(out, entry.getValue().isolationPlaces(), placeIndices);
+        PersonAttributes attributes =
+            attributesOfPeople.getOrDefault(entry.getKey(), new PersonAttributes());
+        int flags = 0;
+        flags |= attributes.studentType != null ? HAS_STUDENT_TYPE : 0;
+        flags |= attributes.isPartTime ? IS_PART_TIME : 0;
+        flags |= attributes.livesOnCampus ? LIVES_ON_CAMPUS : 0;
+        flags |= attributes.isStaffWithStudentFacingJob ? IS_STAFF_WITH_STUDENT_FACING_JOB : 0;
+        out.writeByte(flags);
+        if (attributes.studentType != null) {
+          out.writeByte(attributes.studentType.ordinal());
+        }
+        writeString(out, attributes.livesAtBuilding);
+      }
+    }
+    byte[] payloadBytes = payload.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payloadBytes);
+
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(numConnections);
+      out.writeLong(payloadBytes.length);
+      out.writeLong(crc.getValue());
+      out.write(payloadBytes);
+    }
+    Files.move(
+        tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    mappedSnapshots.invalidate(file);
+  }
+
+  private static void writePlaces(
+      DataOutputStream out, List<PlaceInfo> places, Map<PlaceInfo, Integer> placeIndices)
+      throws IOException {
+    out.writeInt(places.size());
+    for (PlaceInfo place : places) {
+      Integer index = placeIndices.get(place);
+      if (index == null) {
+        throw new IllegalStateException("Place " + place.placeName() + " is not on the campus.");
+      }
+      out.writeInt(index);
+    }
+  }
+
+  private static List<PlaceInfo> readPlaces(ByteBuffer in, List<PlaceInfo> places) {
+    int numPlaces = in.getInt();
+    List<PlaceInfo> toReturn = new ArrayList<>(numPlaces);
+    for (int i = 0; i < numPlaces; i++) {
+      toReturn.add(places.get(in.getInt()));
+    }
+    return toReturn;
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    if (string == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length == -1) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** The places and schedules of a campus, as returned by {@link StaticNetworkBuilder}. */
+  @AutoValue
+  public abstract static class Campus {
+    /** The number of connections of agents the campus was built from. */
+    public abstract long numConnections();
+
+    public abstract ImmutableSet<PlaceInfo> places();
+
+    public abstract ImmutableMap<Long, Person.DailySchedule> dailySchedules();
+
+    static Campus create(
+        long numConnections,
+        ImmutableSet<PlaceInfo> places,
+        ImmutableMap<Long, Person.DailySchedule> dailySchedules) {
+      return new AutoValue_CampusSnapshot_Campus(numConnections, places, dailySchedules);
+    }
+  }
+}
@@ -3,8 +3,13 @@ package tau.anylogic_code;
 import core.Person;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 /**
  * ConnectionOfAgents2
@@ -15,7 +20,14 @@ public class ConnectionOfAgents implements Serializable {
   public static final int defaultStepWithinDay = 0;
   public static int tOneDay = -1;
 
-  public List<Person> people = new ArrayList<>();
+  private final List<Person> people = new ArrayList<>();
+  // How many times each person is in the list, so that membership does not need a scan of the list.
+  private final Map<Person, Integer> counts = new HashMap<>();
+  // How many of the first occurrences of each person in the list have been removed. They are only
+  // taken out of the list the next time it is read, in a single pass.
+  private final Map<Person, Integer> pendingRemovals = new HashMap<>();
+  private int numPendingRemovals;
+  private final List<Person> peopleView = new PeopleView();
   public final int frequency;
   public final int stepWithinDay;
   public double startTime = 0;
@@ -47,22 +59,35 @@ public class ConnectionOfAgents implements Serializable {
   }
 
   public double getNumPeople() {
-    return 1.0 * people.size();
+    return 1.0 * (people.size() - numPendingRemovals);
   }
 
   public void addPerson(Person p) {
-    if (people.contains(p)) {
+    if (counts.containsKey(p)) {
       throw new IllegalStateException("Person cannot be added twice");
     }
+    applyPendingRemovals();
     people.add(p);
+    counts.put(p, 1);
   }
 
   public boolean containsPerson(Person p) {
-    return people.contains(p);
+    return counts.containsKey(p);
   }
 
   public void addPeople(List<Person> p) {
+    applyPendingRemovals();
     people.addAll(p);
+    for (Person person : p) {
+      counts.merge(person, 1, Integer::sum);
+    }
+  }
+
+  public void clearPeople() {
+    people.clear();
+    counts.clear();
+    pendingRemovals.clear();
+    numPendingRemovals = 0;
   }
 
   public boolean isEventHappeningNow(int step, int stepsPerDay) {
@@ -72,11 +97,73 @@ public class ConnectionOfAgents implements Serializable {
   }
 
   public List<Person> getPeople() {
-    return people;
+    return peopleView;
+  }
+
+  /**
+   * A read-only view of the people added to this connection, in the order they were added.
+   * Unlike {@link #getPeople}, subclasses do not change it to the people of a single event.
+   */
+  public List<Person> people() {
+    return peopleView;
   }
 
+  /** Removes the first occurrence of {@code p}, since {@link #addPeople} allows duplicates. */
   public void removePerson(Person p) {
-    people.remove(p);
+    Integer count = counts.get(p);
+    if (count == null) {
+      return;
+    }
+    if (count == 1) {
+      counts.remove(p);
+    } else {
+      counts.put(p, count - 1);
+    }
+    pendingRemovals.merge(p, 1, Integer::sum);
+    numPendingRemovals++;
+  }
+
+  private void applyPendingRemovals() {
+    if (numPendingRemovals == 0) {
+      return;
+    }
+    int n = 0;
+    for (Person p : people) {
+      Integer toRemove = pendingRemovals.get(p);
+      if (toRemove == null) {
+        people.set(n++, p);
+      } else if (toRemove == 1) {
+        pendingRemovals.remove(p);
+      } else {
+        pendingRemovals.put(p, toRemove - 1);
+      }
+    }
+    people.subList(n, people.size()).clear();
+    numPendingRemovals = 0;
+  }
+
+  private class PeopleView extends AbstractList<Person> implements RandomAccess, Serializable {
+
+    @Override
+    public Person get(int index) {
+      applyPendingRemovals();
+      return people.get(index);
+    }
+
+    @Override
+    public int size() {
+      return people.size() - numPendingRemovals;
+    }
+
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * The connections whose people make up the people of this connection. They do not share any
+   * people with each other.
+   */
+  public List<? extends ConnectionOfAgents> getChildConnections() {
+    return Collections.emptyList();
   }
 
   // So that events with the same frequency don't all happen on the same day.
@@ -101,5 +188,5 @@ public class ConnectionOfAgents implements Serializable {
    * This number is here for model snapshot storing purpose<br>
    * It needs to be changed when this class gets changed
    */
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 }
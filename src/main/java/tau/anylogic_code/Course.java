@@ -59,33 +59,37 @@ public class Course extends ConnectionOfAgents implements Serializable {
     }
     people.add(instructor);
     List<Person> students = super.getPeople();
+    people.addAll(
+        students.subList(
+            sectionStart(sectionGoingToThisSession), sectionEnd(sectionGoingToThisSession)));
+    return people;
+  }
 
+  /**
+   * The index of the first student going to the given session. Unless classes are split, every
+   * student goes to every session.
+   */
+  public int sectionStart(int session) {
     if (!doSplitClasses) {
-      people.addAll(students);
-      // traceln("Classes NOT split size " + people.size());
-      return people;
+      return 0;
     }
-
     if (schedule != ClassSchedule.MWF) {
       // Half sections
-      if (sectionGoingToThisSession % 2 == 0) {
-        // First half
-        people.addAll(students.subList(0, students.size() / 2));
-      } else {
-        // second half
-        people.addAll(students.subList(students.size() / 2, students.size()));
-      }
-    } else {
-      // Third sections
-      int indexMultiplier = sectionGoingToThisSession % 3;
-      people.addAll(
-          students.subList(
-              (indexMultiplier * students.size()) / 3,
-              ((indexMultiplier + 1) * students.size()) / 3));
+      return session % 2 == 0 ? 0 : people().size() / 2;
     }
+    // Third sections
+    return ((session % 3) * people().size()) / 3;
+  }
 
-    // traceln("Classes split size " + people.size());
-    return people;
+  /** One past the index of the last student going to the given session. */
+  public int sectionEnd(int session) {
+    if (!doSplitClasses) {
+      return people().size();
+    }
+    if (schedule != ClassSchedule.MWF) {
+      return session % 2 == 0 ? people().size() / 2 : people().size();
+    }
+    return ((session % 3 + 1) * people().size()) / 3;
   }
 
   @Override
@@ -37,6 +37,11 @@ public class DiningHall extends ConnectionOfAgents implements Serializable {
     return people;
   }
 
+  @Override
+  public List<? extends ConnectionOfAgents> getChildConnections() {
+    return assignedBuildings;
+  }
+
   @Override
   public String toString() {
     return super.toString();
@@ -30,13 +30,18 @@ public class Floor extends ConnectionOfAgents implements Serializable {
 
   @Override
   public List<Person> getPeople() {
-    people.clear();
+    clearPeople();
     for (Suite s : suites) {
       addPeople(s.getPeople());
     }
     return super.getPeople();
   }
 
+  @Override
+  public List<? extends ConnectionOfAgents> getChildConnections() {
+    return suites;
+  }
+
   @Override
   public String toString() {
     return super.toString();
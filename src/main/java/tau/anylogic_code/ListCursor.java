@@ -0,0 +1,53 @@
+package tau.anylogic_code;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Hands out the elements of a list from the front, so that a shuffled population can be split into
+ * groups without removing each element from the front of an {@link ArrayList}, which takes time
+ * proportional to the size of the list.
+ */
+final class ListCursor<T> {
+  private final List<T> elements;
+  private int next = 0;
+
+  ListCursor(Collection<? extends T> elements) {
+    this.elements = new ArrayList<>(elements);
+  }
+
+  boolean isEmpty() {
+    return next == elements.size();
+  }
+
+  int numLeft() {
+    return elements.size() - next;
+  }
+
+  /** Returns the next element and moves past it. */
+  T next() {
+    if (isEmpty()) {
+      throw new IllegalStateException("No elements left.");
+    }
+    return elements.get(next++);
+  }
+
+  /** Returns a copy of the next {@code n} elements, or of all that are left, and moves past them. */
+  List<T> next(int n) {
+    int end = next + Math.min(n, numLeft());
+    List<T> taken = new ArrayList<>(elements.subList(next, end));
+    next = end;
+    return taken;
+  }
+
+  /**
+   * Shuffles the elements that are left. This draws from {@code random} exactly as shuffling a list
+   * of only those elements would.
+   */
+  void shuffleRemaining(Random random) {
+    Collections.shuffle(elements.subList(next, elements.size()), random);
+  }
+}
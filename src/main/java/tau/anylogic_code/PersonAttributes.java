@@ -0,0 +1,36 @@
+package tau.anylogic_code;
+
+import core.Person;
+import tau.Staff;
+import tau.Student;
+
+/**
+ * The attributes a person is given while the campus is built, such as their student type and where
+ * they live. They are set on the person in its secondary initialization, and are plain values so
+ * that they can be saved in a {@link CampusSnapshot}.
+ */
+final class PersonAttributes {
+  // Null if the person was not given a student type.
+  StudentType studentType;
+  boolean isPartTime;
+  boolean livesOnCampus;
+  String livesAtBuilding;
+  boolean isStaffWithStudentFacingJob;
+
+  void apply(Person person) {
+    if (person instanceof Student) {
+      Student student = (Student) person;
+      if (studentType != null) {
+        student.type = studentType;
+        student.isPartTime = isPartTime;
+      }
+      if (livesOnCampus) {
+        student.livesOnCampus = true;
+        student.livesAtBuilding = livesAtBuilding;
+      }
+    }
+    if (person instanceof Staff && isStaffWithStudentFacingJob) {
+      ((Staff) person).isStaffWithStudentFacingJob = true;
+    }
+  }
+}
@@ -1,8 +1,12 @@
 package tau.anylogic_code;
 
+import core.Person;
 import tau.Staff;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * StaffToStudent
@@ -11,6 +15,8 @@ public class StaffToStudent extends ConnectionOfAgents implements Serializable {
 
   public Staff staff;
   private final int numStaffInfects;
+  // Permutation of the indices of people, partially reshuffled by every call to sampleVisitors.
+  private int[] visitorOrder = new int[0];
 
   /**
    * Default constructor
@@ -22,6 +28,31 @@ public class StaffToStudent extends ConnectionOfAgents implements Serializable {
     this.setName("Student-Facing Staff  for" + staff.getName());
   }
 
+  /**
+   * The staff member and {@code numStudents} students, sampled without replacement, that meet at
+   * one occurrence of this connection. Only this sample reports to the place, so the place does
+   * not receive a message from every student.
+   */
+  public List<Person> sampleVisitors(int numStudents, Random random) {
+    if (visitorOrder.length != people().size()) {
+      visitorOrder = new int[people().size()];
+      for (int i = 0; i < visitorOrder.length; i++) {
+        visitorOrder[i] = i;
+      }
+    }
+    int numVisitors = Math.min(numStudents, visitorOrder.length);
+    List<Person> visitors = new ArrayList<>(numVisitors + 1);
+    visitors.add(staff);
+    for (int i = 0; i < numVisitors; i++) {
+      int j = i + random.nextInt(visitorOrder.length - i);
+      int tmp = visitorOrder[i];
+      visitorOrder[i] = visitorOrder[j];
+      visitorOrder[j] = tmp;
+      visitors.add(people().get(visitorOrder[i]));
+    }
+    return visitors;
+  }
+
   @Override
   public String toString() {
     return super.toString();
@@ -6,19 +6,31 @@ import com.google.common.collect.ImmutableSet;
 import core.Globals;
 import core.Person;
 import core.PlaceInfo;
+import core.StepSchedule;
 import tau.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.ceil;
 import static java.lang.Math.floor;
 
+/**
+ * Builds the campus: the people, the places they go to and their daily schedules.
+ *
+ * <p>Built campuses can be saved as a {@link CampusSnapshot} and loaded by later runs with the same
+ * inputs. Any change to the campus built from the same inputs must bump {@link
+ * CampusSnapshot#VERSION}, or those runs load stale campuses. CampusSnapshotTest.testVersion fails
+ * until it is bumped.
+ */
 public class StaticNetworkBuilder {
 
   private final Random initializationRandom = new Random(1234);
+  // Places are nested at most this deep, e.g. suite, floor, building and dining hall.
+  private static final int MAX_NESTING_DEPTH = 4;
   private LinkedHashMap<String, LinkedHashMap<StudentType, ArrayList<Student>>> students =
       new LinkedHashMap<>();
   private List<PersonWrapper> allPeople = new ArrayList<>();
@@ -68,6 +80,21 @@ public class StaticNetworkBuilder {
     return createDailySchedules();
   }
 
+  /**
+   * Saves the campus to {@code file} as a {@link CampusSnapshot}, so that later runs can load it
+   * instead of building it. Call with the schedules returned by {@link
+   * #createPlacesAndPersonDailySchedules}, before {@link #destroy}.
+   */
+  public void writeSnapshot(Path file, Map<Long, Person.DailySchedule> dailySchedules)
+      throws IOException {
+    Map<Long, PersonAttributes> attributesOfPeople = new HashMap<>();
+    for (PersonWrapper pw : allPeople) {
+      attributesOfPeople.put(pw.person.personID, pw.attributes);
+    }
+    CampusSnapshot.write(
+        file, allConnections.size(), allPlaceInfos, dailySchedules, attributesOfPeople);
+  }
+
   /**
    * Release all references to model code.
    */
@@ -93,40 +120,135 @@ public class StaticNetworkBuilder {
   }
 
   public Map<Long, Person.DailySchedule> createDailySchedules() {
+    int numSteps = 14 * globals.tOneDay;
     Map<Long, PersonWrapper> personWrapperMap = new LinkedHashMap<>();
     for (PersonWrapper pw : allPeople) {
       personWrapperMap.put(pw.person.personID, pw);
-      for (int i = 0; i < 14 * globals.tOneDay; i++) {
-        pw.placesAtStepMap.put(i, new ArrayList<>());
+      for (int i = 0; i < numSteps; i++) {
+        pw.placesAtStep.add(new ArrayList<>());
       }
     }
+    List<PersonWrapper> wrappers = new ArrayList<>(personWrapperMap.values());
+    Map<Long, Integer> personIndices = new HashMap<>();
+    for (int i = 0; i < wrappers.size(); i++) {
+      personIndices.put(wrappers.get(i).person.personID, i);
+    }
 
     Map<String, PlaceInfo> connectionOfAgentsToPlace = new LinkedHashMap<>();
     for (ConnectionOfAgents connectionOfAgents : allConnections) {
       PlaceInfo placeInfo = toPlace(connectionOfAgents);
       connectionOfAgentsToPlace.put(connectionOfAgents.getName() + connectionOfAgents._id, placeInfo);
+      // Split before the place is added, so it is not changed while it is in the set.
+      List<PlaceInfo> shards = shard(placeInfo);
       allPlaceInfos.add(placeInfo);
+      allPlaceInfos.addAll(shards);
     }
-    for (int i = 0; i < 14 * globals.tOneDay; i++) {
-      for (ConnectionOfAgents connectionOfAgents : allConnections) {
-        if (connectionOfAgents.isEventHappeningNow(i, globals.tOneDay)) {
-          PlaceInfo placeInfo =
-              connectionOfAgentsToPlace.get(connectionOfAgents.getName() + connectionOfAgents._id);
-          for (Person p : connectionOfAgents.getPeople()) {
-            personWrapperMap.get(p.personID).placesAtStepMap.get(i).add(placeInfo);
-          }
-          if (connectionOfAgents instanceof Course) {
-            Course c = (Course) connectionOfAgents;
-            c.sectionGoingToThisSession++;
-          }
+    if (globals.nestPlaces) {
+      nestPlaces(connectionOfAgentsToPlace);
+    }
+
+    // The attendances at each step, in the order of allConnections.
+    List<List<Attendance>> attendancesAtStep = new ArrayList<>(numSteps);
+    for (int i = 0; i < numSteps; i++) {
+      attendancesAtStep.add(new ArrayList<>());
+    }
+    for (ConnectionOfAgents connectionOfAgents : allConnections) {
+      addAttendances(
+          connectionOfAgents,
+          placeOf(connectionOfAgents, connectionOfAgentsToPlace),
+          personIndices,
+          attendancesAtStep);
+    }
+    // Visitors are sampled in step order, as they share initializationRandom.
+    for (List<Attendance> attendances : attendancesAtStep) {
+      for (int i = 0; i < attendances.size(); i++) {
+        Attendance attendance = attendances.get(i);
+        if (attendance.people == null) {
+          int[] visitors =
+              toIndices(
+                  ((StaffToStudent) attendance.connectionOfAgents)
+                      .sampleVisitors(globals.numStaffToStudenContacts, initializationRandom),
+                  personIndices);
+          attendances.set(i, new Attendance(attendance.place, visitors, 0, visitors.length));
+        }
+      }
+    }
+    // Filled step by step, so the places of each step are in the order of allConnections. This
+    // runs sequentially, as models are built inside concurrent batch runs.
+    for (int step = 0; step < numSteps; step++) {
+      for (Attendance attendance : attendancesAtStep.get(step)) {
+        for (int i = attendance.from; i < attendance.to; i++) {
+          wrappers.get(attendance.people[i]).placesAtStep.get(step).add(attendance.place);
         }
       }
     }
+
+    // People with the same places at every step share a single StepSchedule.
+    StepSchedule.Interner stepSchedules = new StepSchedule.Interner();
     ImmutableMap.Builder<Long, Person.DailySchedule> toReturn = ImmutableMap.builder();
-    personWrapperMap.forEach((id, pw) -> toReturn.put(id, pw.generateSchedule()));
+    personWrapperMap.forEach((id, pw) -> toReturn.put(id, pw.generateSchedule(stepSchedules)));
     return toReturn.build();
   }
 
+  /**
+   * Adds an attendance at every step the connection happens. The people of a connection are only
+   * looked up once, and the sections of a course are slices of its students.
+   */
+  private void addAttendances(
+      ConnectionOfAgents connectionOfAgents,
+      PlaceInfo placeInfo,
+      Map<Long, Integer> personIndices,
+      List<List<Attendance>> attendancesAtStep) {
+    int tOneDay = globals.tOneDay;
+    int[] people = null;
+    int[] instructor = null;
+    if (connectionOfAgents instanceof Course) {
+      Course course = (Course) connectionOfAgents;
+      if (course.instructor != null) {
+        people = toIndices(course.people(), personIndices);
+        instructor = toIndices(ImmutableList.of(course.instructor), personIndices);
+      }
+    } else if (!samplesVisitors(connectionOfAgents)) {
+      people = toIndices(connectionOfAgents.getPeople(), personIndices);
+    }
+    // Every connection happens at its stepWithinDay, so only that step of each day is checked.
+    for (int step = connectionOfAgents.stepWithinDay;
+        step < attendancesAtStep.size();
+        step += tOneDay) {
+      if (!connectionOfAgents.isEventHappeningNow(step, tOneDay)) {
+        continue;
+      }
+      List<Attendance> attendances = attendancesAtStep.get(step);
+      if (samplesVisitors(connectionOfAgents)) {
+        attendances.add(new Attendance(placeInfo, connectionOfAgents));
+      } else if (connectionOfAgents instanceof Course) {
+        Course course = (Course) connectionOfAgents;
+        if (instructor != null) {
+          int session = course.sectionGoingToThisSession;
+          attendances.add(new Attendance(placeInfo, instructor, 0, 1));
+          attendances.add(
+              new Attendance(
+                  placeInfo, people, course.sectionStart(session), course.sectionEnd(session)));
+        }
+        course.sectionGoingToThisSession++;
+      } else {
+        attendances.add(new Attendance(placeInfo, people, 0, people.length));
+      }
+    }
+  }
+
+  private boolean samplesVisitors(ConnectionOfAgents connectionOfAgents) {
+    return globals.sampleStaffToStudentVisitors && connectionOfAgents instanceof StaffToStudent;
+  }
+
+  private static int[] toIndices(List<Person> people, Map<Long, Integer> personIndices) {
+    int[] indices = new int[people.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = personIndices.get(people.get(i).personID);
+    }
+    return indices;
+  }
+
   public Set<PlaceInfo> getAllPlaces() {
     return ImmutableSet.copyOf(allPlaceInfos);
   }
@@ -138,7 +260,9 @@ public class StaticNetworkBuilder {
           getPlaceType(connectionOfAgents).ordinal(),
           PlaceInfo.NetworkType.STAR,
           ((StaffToStudent) connectionOfAgents).staff.personID,
-          connectionOfAgents.people.size());
+          samplesVisitors(connectionOfAgents)
+              ? Math.min(globals.numStaffToStudenContacts, connectionOfAgents.people().size()) + 1
+              : connectionOfAgents.people().size());
     }
     if (connectionOfAgents instanceof Course) {
       return PlaceInfo.create(
@@ -147,13 +271,101 @@ public class StaticNetworkBuilder {
           PlaceInfo.NetworkType.FULLY_CONNECTED_DEPENDENT_ON_CENTER,
           ((Course) connectionOfAgents).instructor.personID,
           "Course_" + ((Course) connectionOfAgents).schedule.name(),
-          connectionOfAgents.people.size());
+          connectionOfAgents.people().size());
     }
 
     return PlaceInfo.create(
         connectionOfAgents.getName() + connectionOfAgents._id,
         getPlaceType(connectionOfAgents).ordinal(),
-            connectionOfAgents.people.size());
+            connectionOfAgents.people().size());
+  }
+
+  /**
+   * Splits large fully connected places, such as the fitness center, so that a single PlaceAgent
+   * does not have to handle everyone at the place. Places with a center are not split, since the
+   * center has to be with everyone they can infect.
+   */
+  private List<PlaceInfo> shard(PlaceInfo placeInfo) {
+    int shardSize = globals.placeShardSize;
+    if (shardSize <= 0
+        || placeInfo.networkType() != PlaceInfo.NetworkType.FULLY_CONNECTED
+        || placeInfo.capacity() <= shardSize) {
+      return ImmutableList.of();
+    }
+    return placeInfo.splitIntoShards((int) ceil((double) placeInfo.capacity() / shardSize));
+  }
+
+  /**
+   * Sets the enclosing places of each place, from the child connections of the connections. A child
+   * is only nested in its parent if the parent is active whenever the child is, so that everyone at
+   * the child is at the parent too. Places that are not fully connected or that are split into
+   * shards are not nested.
+   */
+  private void nestPlaces(Map<String, PlaceInfo> connectionOfAgentsToPlace) {
+    Map<ConnectionOfAgents, List<ConnectionOfAgents>> parents = new HashMap<>();
+    for (ConnectionOfAgents parent : allConnections) {
+      for (ConnectionOfAgents child : parent.getChildConnections()) {
+        if (canNest(child, parent, connectionOfAgentsToPlace)) {
+          parents.computeIfAbsent(child, c -> new ArrayList<>()).add(parent);
+        }
+      }
+    }
+    for (ConnectionOfAgents connectionOfAgents : allConnections) {
+      List<PlaceInfo> enclosingPlaces = new ArrayList<>();
+      addEnclosingPlaces(
+          connectionOfAgents, parents, connectionOfAgentsToPlace, MAX_NESTING_DEPTH, enclosingPlaces);
+      if (!enclosingPlaces.isEmpty()) {
+        placeOf(connectionOfAgents, connectionOfAgentsToPlace).setEnclosingPlaces(enclosingPlaces);
+      }
+    }
+  }
+
+  private boolean canNest(
+      ConnectionOfAgents child,
+      ConnectionOfAgents parent,
+      Map<String, PlaceInfo> connectionOfAgentsToPlace) {
+    PlaceInfo childPlace = placeOf(child, connectionOfAgentsToPlace);
+    PlaceInfo parentPlace = placeOf(parent, connectionOfAgentsToPlace);
+    if (childPlace == null || parentPlace == null) {
+      return false;
+    }
+    for (PlaceInfo place : ImmutableList.of(childPlace, parentPlace)) {
+      if (place.networkType() != PlaceInfo.NetworkType.FULLY_CONNECTED || place.numShards() > 1) {
+        return false;
+      }
+    }
+    for (int i = 0; i < 14 * globals.tOneDay; i++) {
+      if (child.isEventHappeningNow(i, globals.tOneDay)
+          && !parent.isEventHappeningNow(i, globals.tOneDay)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void addEnclosingPlaces(
+      ConnectionOfAgents connectionOfAgents,
+      Map<ConnectionOfAgents, List<ConnectionOfAgents>> parents,
+      Map<String, PlaceInfo> connectionOfAgentsToPlace,
+      int depth,
+      List<PlaceInfo> enclosingPlaces) {
+    if (depth == 0) {
+      return;
+    }
+    for (ConnectionOfAgents parent :
+        parents.getOrDefault(connectionOfAgents, Collections.emptyList())) {
+      PlaceInfo parentPlace = placeOf(parent, connectionOfAgentsToPlace);
+      if (!enclosingPlaces.contains(parentPlace)) {
+        enclosingPlaces.add(parentPlace);
+      }
+      addEnclosingPlaces(
+          parent, parents, connectionOfAgentsToPlace, depth - 1, enclosingPlaces);
+    }
+  }
+
+  private static PlaceInfo placeOf(
+      ConnectionOfAgents connectionOfAgents, Map<String, PlaceInfo> connectionOfAgentsToPlace) {
+    return connectionOfAgentsToPlace.get(connectionOfAgents.getName() + connectionOfAgents._id);
   }
 
   private TAUModel.PlaceType getPlaceType(ConnectionOfAgents connectionOfAgents) {
@@ -244,7 +456,7 @@ public class StaticNetworkBuilder {
       int[] suiteSize,
       List<PersonWrapper> paramStudentsPool,
       String buildingName) {
-    List<PersonWrapper> studentsPool = new ArrayList<>(paramStudentsPool);
+    ListCursor<PersonWrapper> studentsPool = new ListCursor<>(paramStudentsPool);
     int numBuildings = 0;
     while (!studentsPool.isEmpty()) {
 
@@ -252,7 +464,7 @@ public class StaticNetworkBuilder {
       building.setName(buildingName + (numBuildings++));
       allConnections.add(building);
       housingBuildings.add(building);
-      Collections.shuffle(studentsPool, initializationRandom);
+      studentsPool.shuffleRemaining(initializationRandom);
 
       int numBathrooms = 0;
       for (int floorNum = 0; floorNum < numFloors && !studentsPool.isEmpty(); floorNum++) {
@@ -272,13 +484,9 @@ public class StaticNetworkBuilder {
           s.setName(
               "Suite " + suiteNum + " of floor " + floorNum + " of building " + building.getName());
           for (int i = 0; i < sizeOfSuite && !studentsPool.isEmpty(); i++) {
-            PersonWrapper toAdd = studentsPool.remove(0);
-            toAdd.addToInit(
-                Student.class,
-                student -> {
-                  student.livesOnCampus = true;
-                  student.livesAtBuilding = s.getName();
-                });
+            PersonWrapper toAdd = studentsPool.next();
+            toAdd.attributes.livesOnCampus = true;
+            toAdd.attributes.livesAtBuilding = s.getName();
             suiteStudents.add(toAdd.person);
           }
           // traceln("Size of people " + suiteStudents.size());
@@ -327,13 +535,10 @@ public class StaticNetworkBuilder {
 	studentHousingFloorNumSuitesRangeStart1, studentHousingFloorNumSuitesRangeEnd1)
 	.toArray();*/
 
+    Set<Long> freshmenAndSophomores =
+        fullTimeStudentIds(StudentType.FRESHMAN, StudentType.SOPHOMORE);
     Predicate<PersonWrapper> isFreshmanOrSophomore =
-        pw -> {
-          return students.get("full_time").get(StudentType.FRESHMAN).stream()
-              .anyMatch(s -> s.personID == pw.person.personID)
-              || students.get("full_time").get(StudentType.SOPHOMORE).stream()
-              .anyMatch(s -> s.personID == pw.person.personID);
-        };
+        pw -> freshmenAndSophomores.contains(pw.person.personID);
 
     List<PersonWrapper> studentPool1 =
         new ArrayList<>(
@@ -370,13 +575,9 @@ public class StaticNetworkBuilder {
         "BuildingType1_");
     // }
 
+    Set<Long> juniorsAndSeniors = fullTimeStudentIds(StudentType.JUNIOR, StudentType.SENIOR);
     Predicate<PersonWrapper> isJuniorOrSenior =
-        pw -> {
-          return students.get("full_time").get(StudentType.JUNIOR).stream()
-              .anyMatch(s -> s.personID == pw.person.personID)
-              || students.get("full_time").get(StudentType.SENIOR).stream()
-              .anyMatch(s -> s.personID == pw.person.personID);
-        };
+        pw -> juniorsAndSeniors.contains(pw.person.personID);
 
     int[] numSuitesPerFloorRange2 = new int[]{1}; /*java.util.stream.IntStream.rangeClosed(
 	studentHousingFloorNumSuitesRangeStart2, studentHousingFloorNumSuitesRangeEnd2)
@@ -409,6 +610,14 @@ public class StaticNetworkBuilder {
     // }
   }
 
+  private Set<Long> fullTimeStudentIds(StudentType... studentTypes) {
+    Set<Long> ids = new HashSet<>();
+    for (StudentType studentType : studentTypes) {
+      students.get("full_time").get(studentType).forEach(s -> ids.add(s.personID));
+    }
+    return ids;
+  }
+
   public void makeDiningHalls() {
     int buildingIndex = 0;
     int approxNumPeoplePerDiningHall =
@@ -438,14 +647,11 @@ public class StaticNetworkBuilder {
 
   public void makeStaffAssignments() {
     // traceln("All staff size " + allStaff.size());
-    List<Staff> allStaff = new ArrayList<>(getAll(Staff.class));
-    Collections.shuffle(allStaff, initializationRandom);
+    ListCursor<Person> allStaff = new ListCursor<>(getAll(Staff.class));
+    allStaff.shuffleRemaining(initializationRandom);
 
     while (!allStaff.isEmpty()) {
-      List<Person> staffSharingOfficeAndBathroom = new ArrayList<>();
-      for (int i = 0; i < numStaffShareOffice && !allStaff.isEmpty(); i++) {
-        staffSharingOfficeAndBathroom.add(allStaff.remove(0));
-      }
+      List<Person> staffSharingOfficeAndBathroom = allStaff.next(numStaffShareOffice);
       if (staffSharingOfficeAndBathroom.size() == 1) {
         continue;
       }
@@ -469,15 +675,72 @@ public class StaticNetworkBuilder {
       studentFacingStaffAndStudents.setName("staff_and_student");
       studentFacingStaffAndStudents.addPeople(allStudents);
       allConnections.add(studentFacingStaffAndStudents);
-      stf.addToInit(
-          Staff.class,
-          staff -> {
-            staff.isStaffWithStudentFacingJob = true;
-          });
+      stf.attributes.isStaffWithStudentFacingJob = true;
     }
   }
 
+  /**
+   * Assigns people to campus events until everyone attends as many events as they were assigned by
+   * {@link #assignEventsPerWeek}. Each event is a uniform sample of the people with events left.
+   */
   public void makeEvents() {
+    if (globals.legacyEventAssignment) {
+      makeEventsLegacy();
+      return;
+    }
+    int eventId = 0;
+    int offset = 0;
+
+    // The people with events left, in pool[0] to pool[poolSize - 1], and how many they have left.
+    Person[] pool = new Person[allPeople.size()];
+    int[] numEventsLeft = new int[allPeople.size()];
+    int poolSize = 0;
+    for (PersonWrapper pw : allPeople) {
+      int numEvents = personToNumEventsAssignments.get(pw.person.personID);
+      if (numEvents > 0) {
+        pool[poolSize] = pw.person;
+        numEventsLeft[poolSize] = numEvents;
+        poolSize++;
+      }
+    }
+
+    while (poolSize > 0) {
+      int eventSize = Math.min((int) normal(10, 100, 50, 20), poolSize);
+      // Partial Fisher-Yates shuffle, moving a uniform sample of the pool to its front.
+      for (int i = 0; i < eventSize; i++) {
+        int j = i + initializationRandom.nextInt(poolSize - i);
+        swap(pool, numEventsLeft, i, j);
+      }
+      CampusEvent e = new CampusEvent(offset, getNextIdForConnectionOfAgents());
+      e.setName("event" + (eventId++));
+      e.addPeople(Arrays.asList(pool).subList(0, eventSize));
+      allConnections.add(e);
+      offset++;
+
+      // Going backwards, anyone swapped in from the end of the pool was not sampled or is counted.
+      for (int i = eventSize - 1; i >= 0; i--) {
+        if (--numEventsLeft[i] == 0) {
+          swap(pool, numEventsLeft, i, --poolSize);
+        }
+      }
+    }
+  }
+
+  private static void swap(Person[] people, int[] counts, int i, int j) {
+    Person person = people[i];
+    people[i] = people[j];
+    people[j] = person;
+    int count = counts[i];
+    counts[i] = counts[j];
+    counts[j] = count;
+  }
+
+  /**
+   * The original {@link #makeEvents}, which draws differently from {@link #initializationRandom}.
+   * It reshuffles everyone with events left for every event, so it is quadratic in the number of
+   * people.
+   */
+  private void makeEventsLegacy() {
     int eventId = 0;
     int offset = 0;
 
@@ -556,16 +819,16 @@ public class StaticNetworkBuilder {
   }
 
   public void makeStudentGroups() {
-    List<Student> allStudents = new ArrayList<>();
-    allStudents.addAll(
-        allPeople.stream()
-            .filter(pw -> pw.person instanceof Student)
-            .map(pw -> (Student) pw.person)
-            .collect(Collectors.toList()));
-    Collections.shuffle(allStudents, initializationRandom);
+    ListCursor<Student> allStudents =
+        new ListCursor<>(
+            allPeople.stream()
+                .filter(pw -> pw.person instanceof Student)
+                .map(pw -> (Student) pw.person)
+                .collect(Collectors.toList()));
+    allStudents.shuffleRemaining(initializationRandom);
 
     int numStudentsInGroups = 0;
-    int numberOfStudentsInGroups = (int) (percStudentsInGroup * allStudents.size());
+    int numberOfStudentsInGroups = (int) (percStudentsInGroup * allStudents.numLeft());
     int numGroups = 0;
     while (numStudentsInGroups < numberOfStudentsInGroups) {
       int groupSize =
@@ -579,9 +842,8 @@ public class StaticNetworkBuilder {
       numStudentsInGroups += groupSize;
       StudentGroup group = new StudentGroup(getNextIdForConnectionOfAgents());
       group.setName("Student group " + (numGroups++));
-      for (int i = 0; i < numStudentsInGroups && !allStudents.isEmpty(); i++) {
-        group.addPerson(allStudents.remove(0));
-      }
+      // Takes up to numStudentsInGroups, the running total, rather than groupSize students.
+      allStudents.next(numStudentsInGroups).forEach(group::addPerson);
       allConnections.add(group);
     }
   }
@@ -734,47 +996,30 @@ public class StaticNetworkBuilder {
       }
       for (int i = 0; i < numFullTimeEachClass; i++) {
         PersonWrapper pw = allStudents.next();
-        pw.addToInit(
-            Student.class,
-            s -> {
-              s.type = type;
-              s.isPartTime = false;
-            });
+        pw.attributes.studentType = type;
+        pw.attributes.isPartTime = false;
         students.get("full_time").get(type).add((Student) pw.person);
       }
       for (int i = 0; i < numPartTimeEachClass; i++) {
         PersonWrapper pw = allStudents.next();
-        pw.addToInit(
-            Student.class,
-            s -> {
-              s.type = type;
-              s.isPartTime = true;
-            });
+        pw.attributes.studentType = type;
+        pw.attributes.isPartTime = true;
         students.get("part_time").get(type).add((Student) pw.person);
       }
     }
 
     for (int i = 0; i < numGraduate; i++) {
       PersonWrapper pw = allStudents.next();
-      pw.addToInit(
-          Student.class,
-          s -> {
-            s.type = StudentType.GRADUATE;
-            s.isPartTime = false;
-          });
+      pw.attributes.studentType = StudentType.GRADUATE;
+      pw.attributes.isPartTime = false;
       students.get("full_time").get(StudentType.GRADUATE).add((Student) pw.person);
     }
 
     int typeIndex = 0;
     while (allStudents.hasNext()) {
       PersonWrapper pw = allStudents.next();
-      final int tmpTypeIndex = typeIndex;
-      pw.addToInit(
-          Student.class,
-          s -> {
-            s.type = StudentType.values()[tmpTypeIndex % StudentType.values().length];
-            s.isPartTime = false;
-          });
+      pw.attributes.studentType = StudentType.values()[typeIndex % StudentType.values().length];
+      pw.attributes.isPartTime = false;
       students.get("full_time").get(typeIndex).add((Student) pw.person);
       typeIndex++;
     }
@@ -804,35 +1049,51 @@ public class StaticNetworkBuilder {
         .collect(Collectors.toList());
   }
 
+  /**
+   * The people going to a place at one step: {@code people[from]} to {@code people[to - 1]}, as
+   * indices into the people being scheduled. The visitors of a {@link StaffToStudent} are
+   * sampled later, when {@link Globals#sampleStaffToStudentVisitors} is set, and are null until
+   * then.
+   */
+  private static final class Attendance {
+    final PlaceInfo place;
+    final int[] people;
+    final int from;
+    final int to;
+    final ConnectionOfAgents connectionOfAgents;
+
+    Attendance(PlaceInfo place, int[] people, int from, int to) {
+      this.place = place;
+      this.people = people;
+      this.from = from;
+      this.to = to;
+      this.connectionOfAgents = null;
+    }
+
+    Attendance(PlaceInfo place, ConnectionOfAgents connectionOfAgents) {
+      this.place = place;
+      this.people = null;
+      this.from = 0;
+      this.to = 0;
+      this.connectionOfAgents = connectionOfAgents;
+    }
+  }
+
   private static class PersonWrapper {
-    final Map<Integer, List<PlaceInfo>> placesAtStepMap = new LinkedHashMap<>();
+    final List<List<PlaceInfo>> placesAtStep = new ArrayList<>();
     final List<PlaceInfo> isolationPlaceInfos = new ArrayList<>();
-    final List<Consumer<Person>> secondaryInitialziation = new ArrayList<>();
+    final PersonAttributes attributes = new PersonAttributes();
     final Person person;
 
     PersonWrapper(Person person) {
       this.person = person;
     }
 
-    Person.DailySchedule generateSchedule() {
+    Person.DailySchedule generateSchedule(StepSchedule.Interner stepSchedules) {
       return Person.DailySchedule.create(
-          ImmutableMap.copyOf(placesAtStepMap),
+          stepSchedules.intern(StepSchedule.of(placesAtStep)),
           ImmutableList.copyOf(isolationPlaceInfos),
-          personToInit -> {
-            secondaryInitialziation.forEach(consumer -> consumer.accept(personToInit));
-          });
-    }
-
-    void addToInit(Consumer<Person> init) {
-      secondaryInitialziation.add(init);
-    }
-
-    <T> void addToInit(Class<T> clazz, Consumer<T> init) {
-      secondaryInitialziation.add(
-          person -> {
-            T personCastAs = clazz.cast(person);
-            init.accept(personCastAs);
-          });
+          attributes::apply);
     }
   }
 }
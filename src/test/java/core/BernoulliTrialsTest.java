@@ -0,0 +1,35 @@
+package core;
+
+import org.junit.Test;
+import simudyne.core.rng.SeededRandom;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class BernoulliTrialsTest {
+
+  @Test
+  public void testNextSuccess_certainAndImpossible() {
+    SeededRandom random = SeededRandom.create(1);
+
+    assertThat(BernoulliTrials.nextSuccess(3, 10, 1.0, random)).isEqualTo(3);
+    assertThat(BernoulliTrials.nextSuccess(3, 10, 0.0, random)).isEqualTo(10);
+    assertThat(BernoulliTrials.nextSuccess(10, 10, 1.0, random)).isEqualTo(10);
+  }
+
+  @Test
+  public void testNextSuccess_countMatchesProbability() {
+    SeededRandom random = SeededRandom.create(1);
+    long numTrials = 1_000_000;
+    double p = 0.05;
+
+    long numSuccesses = 0;
+    for (long t = BernoulliTrials.nextSuccess(0, numTrials, p, random);
+        t < numTrials;
+        t = BernoulliTrials.nextSuccess(t + 1, numTrials, p, random)) {
+      numSuccesses++;
+    }
+
+    // Binomial standard deviation is ~218, so this is a > 4 sigma bound.
+    assertThat((double) numSuccesses).isWithin(1000).of(numTrials * p);
+  }
+}
@@ -28,6 +28,8 @@ public class CentralAgentTest {
     testKit.createLongAccumulator("numTestsThisStep");
     testKit.createLongAccumulator("totTestsReturnedThisStep");
     testKit.createLongAccumulator("posTestsReturnedThisStep");
+    testKit.createLongAccumulator("numPendingTests");
+    testKit.createLongAccumulator("numPendingPosTests");
 
     centralAgent = testKit.addAgent(CentralAgent.class);
     pa1 = testKit.addAgent(PlaceAgent.class);
@@ -55,7 +57,7 @@ public class CentralAgentTest {
               @Override
               public Set<Long> getAgentsToTest(
                   Set<Long> symptomaticAgentsToday,
-                  Map<Long, Double> testSelectionMultipliers,
+                  TestSelectionIndex testSelectionMultipliers,
                   SeededRandom random,
                   long numAgentsToTest) {
                 testSelectionMultipliersCollected.clear();
@@ -82,4 +84,34 @@ public class CentralAgentTest {
     assertThat(multiplier.isPresent()).isTrue();
     assertThat(multiplier.get()).isEqualTo(12.34);
   }
+
+  @Test
+  public void testReleaseTestResults_countsOnlyReturnedTests() {
+    testKit.getGlobals().testDelayTStep = 1;
+    testKit.getGlobals().tStep = 0;
+    sendInfectionStatus(100L, Person.InfectionStatus.INFECTED);
+    sendInfectionStatus(101L, Person.InfectionStatus.SUSCEPTIBLE);
+    testKit.testAction(centralAgent, CentralAgent.processInfectionStatus);
+
+    testKit.testAction(centralAgent, CentralAgent.releaseTestResults);
+    assertThat(centralAgent.getLongAccumulator("numPendingTests").value()).isEqualTo(2);
+    assertThat(centralAgent.getLongAccumulator("numPendingPosTests").value()).isEqualTo(1);
+    assertThat(centralAgent.getLongAccumulator("totTestsReturnedThisStep").value()).isEqualTo(0);
+
+    testKit.getGlobals().tStep = 1;
+    testKit.testAction(centralAgent, CentralAgent.releaseTestResults);
+    assertThat(centralAgent.getLongAccumulator("totTestsReturnedThisStep").value()).isEqualTo(2);
+    assertThat(centralAgent.getLongAccumulator("posTestsReturnedThisStep").value()).isEqualTo(1);
+  }
+
+  private void sendInfectionStatus(long sender, Person.InfectionStatus status) {
+    testKit.send(
+            Messages.InfectionStatusMsg.class,
+            msg -> {
+              msg.infectedStatus = status;
+              msg.testAccuracy = 1.0;
+            },
+            sender)
+        .to(centralAgent);
+  }
 }
@@ -0,0 +1,65 @@
+package core;
+
+import org.junit.Test;
+import simudyne.core.rng.SeededRandom;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ContactSamplerTest {
+
+  private final ContactSampler sampler = new ContactSampler();
+
+  @Test
+  public void testLegacyDrawOrder_matchesSamplingFromAllOthers() {
+    int numOccupants = 7;
+    int excluded = 3;
+    SeededRandom random = SeededRandom.create(42);
+    SeededRandom expectedRandom = SeededRandom.create(42);
+
+    int numContacts =
+        sampler.sample(numOccupants, excluded, 50, ContactSampler.DrawOrder.LEGACY, random);
+
+    assertThat(numContacts).isEqualTo(50);
+    for (int i = 0; i < numContacts; i++) {
+      // Index into the list of everyone except the excluded occupant.
+      int expected = expectedRandom.discrete(0, numOccupants - 2).sample();
+      if (expected >= excluded) {
+        expected++;
+      }
+      assertThat(sampler.contacts()[i]).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testRejectionDrawOrder_neverReturnsExcluded() {
+    Set<Integer> seen = new HashSet<>();
+
+    int numContacts =
+        sampler.sample(5, 0, 200, ContactSampler.DrawOrder.REJECTION, SeededRandom.create(1));
+
+    assertThat(numContacts).isEqualTo(200);
+    for (int i = 0; i < numContacts; i++) {
+      seen.add(sampler.contacts()[i]);
+    }
+    assertThat(seen).containsExactly(1, 2, 3, 4);
+  }
+
+  @Test
+  public void testSingleOtherOccupant_returnedOnce() {
+    for (ContactSampler.DrawOrder drawOrder : ContactSampler.DrawOrder.values()) {
+      int numContacts = sampler.sample(2, 1, 5, drawOrder, SeededRandom.create(1));
+
+      assertThat(numContacts).isEqualTo(1);
+      assertThat(sampler.contacts()[0]).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testNoOtherOccupants() {
+    assertThat(sampler.sample(1, 0, 5, ContactSampler.DrawOrder.LEGACY, SeededRandom.create(1)))
+        .isEqualTo(0);
+  }
+}
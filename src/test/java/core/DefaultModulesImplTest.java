@@ -21,6 +21,27 @@ public class DefaultModulesImplTest {
     testKit = TestKit.create(Globals.class);
   }
 
+  @Test
+  public void testGetInfectionTrajectoryModel_notSharedBetweenRuns() {
+    Globals firstRunGlobals = testKit.getGlobals();
+    firstRunGlobals.percAsymptomatic = 0.3;
+    Globals secondRunGlobals = TestKit.create(Globals.class).getGlobals();
+    secondRunGlobals.percAsymptomatic = 0.6;
+    DefaultModulesImpl secondRunModules = DefaultModulesImpl.getInstance();
+
+    InfectionTrajectoryModel firstRunModel =
+        defaultModules.getInfectionTrajectoryModel(null, firstRunGlobals);
+    InfectionTrajectoryModel secondRunModel =
+        secondRunModules.getInfectionTrajectoryModel(null, secondRunGlobals);
+
+    assertThat(defaultModules.getInfectionTrajectoryModel(null, firstRunGlobals))
+        .isSameAs(firstRunModel);
+    assertThat(firstRunModel.distribution().percentageAsymptomaticCases()).isEqualTo(0.3);
+    assertThat(secondRunModel.distribution().percentageAsymptomaticCases()).isEqualTo(0.6);
+    assertThat(firstRunModel.expectedIllnessDurationSevereDays()).isEqualTo(22.0);
+    assertThat(firstRunModel.expectedSymptomsOnsetSevereDays()).isEqualTo(4.0);
+  }
+
   @Test
   public void testGetPeopleToTest_firstPerson() {
     testKit.getGlobals().testsPerDay = 1;
@@ -29,7 +50,7 @@ public class DefaultModulesImplTest {
     Set<Long> agentsToTest =
         defaultModules.getAgentsToTest(
             ImmutableSet.of(),
-            ImmutableMap.of(1L, 1.0, 2L, 0.0, 3L, 0.0),
+            TestSelectionIndex.copyOf(ImmutableMap.of(1L, 1.0, 2L, 0.0, 3L, 0.0)),
             SeededRandom.create(1),
             testKit.getGlobals());
 
@@ -44,7 +65,7 @@ public class DefaultModulesImplTest {
     Set<Long> agentsToTest =
         defaultModules.getAgentsToTest(
             ImmutableSet.of(),
-            ImmutableMap.of(1L, 0.0, 2L, 2.0, 3L, 0.0),
+            TestSelectionIndex.copyOf(ImmutableMap.of(1L, 0.0, 2L, 2.0, 3L, 0.0)),
             SeededRandom.create(1),
             testKit.getGlobals());
 
@@ -59,7 +80,7 @@ public class DefaultModulesImplTest {
     Set<Long> agentsToTest =
         defaultModules.getAgentsToTest(
             ImmutableSet.of(),
-            ImmutableMap.of(1L, 0.0, 2L, 0.0, 3L, 1.0),
+            TestSelectionIndex.copyOf(ImmutableMap.of(1L, 0.0, 2L, 0.0, 3L, 1.0)),
             SeededRandom.create(1),
             testKit.getGlobals());
 
@@ -74,7 +95,7 @@ public class DefaultModulesImplTest {
     Set<Long> agentsToTest =
         defaultModules.getAgentsToTest(
             ImmutableSet.of(),
-            ImmutableMap.of(1L, 0.0, 2L, 0.0, 3L, 1.0, 4L, 0.00001),
+            TestSelectionIndex.copyOf(ImmutableMap.of(1L, 0.0, 2L, 0.0, 3L, 1.0, 4L, 0.00001)),
             SeededRandom.create(1),
             testKit.getGlobals());
 
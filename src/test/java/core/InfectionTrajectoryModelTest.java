@@ -0,0 +1,48 @@
+package core;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class InfectionTrajectoryModelTest {
+
+  @Test
+  public void testSample_drawsEveryDayOfTheRanges() {
+    InfectionTrajectoryModel model =
+        InfectionTrajectoryModel.create(InfectionTrajectoryDistribution.builder().build());
+    Random synthetic = new Random(2);
+    Set<Integer> infectiousDays = new HashSet<>();
+    Set<Integer> illnessDurationDays = new HashSet<>();
+    Set<Integer> symptomsOnsetDays = new HashSet<>();
+
+    for (int i = 0; i < 1000; i++) {
+      // Infected at step 10, with 2 steps a day.
+      InfectionCharacteristics characteristics = model.sample(0, synthetic::nextDouble, 10, 2);
+      assertThat(characteristics.isAsymptomatic()).isTrue();
+      infectiousDays.add((characteristics.tInfectious() - 10) / 2);
+      illnessDurationDays.add((characteristics.illnessDuration() - 10) / 2);
+      symptomsOnsetDays.add((characteristics.symptomsOnset() - 10) / 2);
+    }
+
+    assertThat(infectiousDays).containsExactly(2, 3);
+    assertThat(illnessDurationDays).containsExactly(7, 8, 9, 10, 11, 12, 13, 14);
+    assertThat(symptomsOnsetDays).containsExactly(3, 4, 5);
+  }
+
+  @Test
+  public void testSample_severeCase() {
+    InfectionTrajectoryDistribution distribution = InfectionTrajectoryDistribution.builder().build();
+    InfectionTrajectoryModel model = InfectionTrajectoryModel.create(distribution);
+
+    InfectionCharacteristics first = model.sample(0.99, () -> 0, 0, 1);
+    InfectionCharacteristics last = model.sample(0.99, () -> Math.nextDown(1.0), 0, 1);
+
+    assertThat(first.isAsymptomatic()).isFalse();
+    assertThat(first.illnessDuration()).isEqualTo(distribution.illnessDurationSevereRangeStart());
+    assertThat(last.illnessDuration()).isEqualTo(distribution.illnessDurationSevereRangeEnd());
+  }
+}
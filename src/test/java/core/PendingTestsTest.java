@@ -0,0 +1,46 @@
+package core;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PendingTestsTest {
+
+  private final PendingTests pendingTests = new PendingTests();
+
+  @Test
+  public void testReleaseDue_onlyReleasesTestsReturningThisStep() {
+    int testDelayTStep = 2;
+    core.Test first = core.Test.create(1, 2, true);
+    core.Test second = core.Test.create(2, 3, false);
+    core.Test third = core.Test.create(3, 3, true);
+    pendingTests.add(first, testDelayTStep);
+    pendingTests.add(second, testDelayTStep);
+    pendingTests.add(third, testDelayTStep);
+
+    assertThat(pendingTests.releaseDue(1)).isEmpty();
+    assertThat(pendingTests.releaseDue(2)).containsExactly(first);
+    assertThat(pendingTests.numPending()).isEqualTo(2);
+    assertThat(pendingTests.numPendingPositive()).isEqualTo(1);
+    assertThat(pendingTests.releaseDue(3)).containsExactly(second, third);
+    assertThat(pendingTests.numPending()).isEqualTo(0);
+    assertThat(pendingTests.numPendingPositive()).isEqualTo(0);
+  }
+
+  @Test
+  public void testReleaseDue_testDelayChanged() {
+    core.Test first = core.Test.create(1, 4, true);
+    core.Test second = core.Test.create(2, 5, true);
+    pendingTests.add(first, 2);
+    pendingTests.add(second, 4);
+
+    assertThat(pendingTests.releaseDue(4)).containsExactly(first);
+    assertThat(pendingTests.releaseDue(5)).containsExactly(second);
+  }
+
+  @Test
+  public void testReleaseDue_nothingPending() {
+    assertThat(pendingTests.releaseDue(0)).isEmpty();
+    assertThat(pendingTests.numPending()).isEqualTo(0);
+  }
+}
@@ -408,6 +408,58 @@ public class PersonTest {
         .isEqualTo(2.34);
   }
 
+  @Test
+  public void testGetTransmissibilityInfo_reusedUntilPersonChanges() {
+    Person p = testKit.addAgent(Person.class, Person::init);
+    p.maskType = Person.MaskType.N95;
+
+    Person.PersonTransmissibilityInfo withMask = p.getTransmissibilityInfo(true);
+    Person.PersonTransmissibilityInfo withoutMask = p.getTransmissibilityInfo(false);
+    assertThat(p.getTransmissibilityInfo(true)).isSameAs(withMask);
+    assertThat(p.getTransmissibilityInfo(false)).isSameAs(withoutMask);
+    assertThat(withMask).isEqualTo(Person.PersonTransmissibilityInfo.create(p, true));
+    assertThat(withoutMask).isEqualTo(Person.PersonTransmissibilityInfo.create(p, false));
+
+    p.contactRate++;
+    assertThat(p.getTransmissibilityInfo(true))
+        .isEqualTo(Person.PersonTransmissibilityInfo.create(p, true));
+  }
+
+  @Test
+  public void testMoveFromSchedule_placesSortedById() {
+    Person p = testKit.addAgent(Person.class, Person::init);
+    testKit.getGlobals().tStep = 0;
+    PlaceInfo a = TestUtils.createPlaceInfoWithAgent("A", 0, testKit);
+    PlaceInfo b = TestUtils.createPlaceInfoWithAgent("B", 0, testKit);
+    p.dailySchedule =
+        Person.DailySchedule.create(
+            ImmutableMap.of(0, ImmutableList.of(b, a)), ImmutableList.of());
+
+    p.decideNextLocation();
+
+    assertThat(p.getCurrentPlaces()).containsExactly(a, b).inOrder();
+  }
+
+  @Test
+  public void testExecuteMovement_reportsOnlyToInnermostPlace() {
+    Person p = testKit.addAgent(Person.class, Person::init);
+    PlaceInfo building = TestUtils.createPlaceInfoWithAgent("building", 0, testKit);
+    PlaceInfo floor = TestUtils.createPlaceInfoWithAgent("floor", 0, testKit);
+    PlaceInfo suite = TestUtils.createPlaceInfoWithAgent("suite", 0, testKit);
+    PlaceInfo course = TestUtils.createPlaceInfoWithAgent("course", 0, testKit);
+    floor.setEnclosingPlaces(ImmutableList.of(building));
+    suite.setEnclosingPlaces(ImmutableList.of(floor, building));
+    p.setCurrentPlaces(ImmutableList.of(building, floor, suite, course));
+
+    TestResult result = testKit.testAction(p, Person.executeMovement);
+
+    List<Messages.IAmHereMsg> msgs = result.getMessagesOfType(Messages.IAmHereMsg.class);
+    assertThat(msgs).hasSize(2);
+    assertThat(msgs.get(0).enclosingPlaceInfos).asList().doesNotContain(null);
+    assertThat(msgs.get(0).enclosingPlaceInfos).hasLength(2);
+    assertThat(msgs.get(1).enclosingPlaceInfos).isNull();
+  }
+
   @Test
   public void testMoveFromSchedule() {
     Person p = testKit.addAgent(Person.class, Person::init);
@@ -1,12 +1,18 @@
 package core;
 
+import com.google.common.collect.ImmutableList;
 import org.junit.Before;
 import org.junit.Test;
 import simudyne.core.abm.testkit.TestKit;
 import simudyne.core.abm.testkit.TestResult;
+import simudyne.core.rng.SeededRandom;
 import tau.TAUModel;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -18,6 +24,11 @@ public class PlaceAgentTest {
   @Before
   public void setUp() throws Exception {
     testKit = TestKit.create(Globals.class);
+    for (TAUModel.PlaceType placeType : TAUModel.PlaceType.values()) {
+      testKit.createLongAccumulator(PlaceTypeCounters.totalPeople(placeType.ordinal()));
+      testKit.createLongAccumulator(PlaceTypeCounters.startedInfected(placeType.ordinal()));
+      testKit.createLongAccumulator(PlaceTypeCounters.gotInfected(placeType.ordinal()));
+    }
     testPlaceAgent = testKit.addAgent(PlaceAgent.class);
     placeInfo = PlaceInfo.create("A", 0);
   }
@@ -86,6 +97,7 @@ public class PlaceAgentTest {
 
     sendInfectedIAmHereMsgWithPersonId(testKit, testPlaceAgent, 0);
     sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
     TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
 
     List<Messages.YouInfectedSomeoneMsg> youInfectedSomeoneMsgs =
@@ -116,6 +128,7 @@ public class PlaceAgentTest {
 
     sendInfectedIAmHereMsgWithPersonId(testKit, testPlaceAgent, 0);
     sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
     TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
 
     List<Messages.YouInfectedSomeoneMsg> youInfectedSomeoneMsgs =
@@ -131,6 +144,266 @@ public class PlaceAgentTest {
     assertThat(msg.getTo()).isEqualTo(0);
   }
 
+  @Test
+  public void testConformityDistancing_appliedOnce() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.BUILDING.ordinal());
+    testPlaceAgent.init();
+    testKit.send(Messages.PlaceMessage.class, msg -> msg.placeInfo = placeInfo)
+        .to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.receivePlace);
+    testKit.getGlobals().outputTransmissions = true;
+    testKit.getGlobals().baseInfectivity = 1.0;
+    testKit.getGlobals().conformityDistancingEnabled = true;
+
+    sendInfectedIAmHereMsgWithPersonId(testKit, testPlaceAgent, 0);
+    testKit.send(Messages.IAmHereMsg.class, msg ->
+        msg.transmissibilityInfo = Person.PersonTransmissibilityInfo.dummy().toBuilder()
+            .physicalDistCompliance(0.5)
+            .conformityScore(0.5)
+            .build(),
+        1).to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+    TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+
+    List<Messages.YouInfectedSomeoneMsg> youInfectedSomeoneMsgs =
+        result.getMessagesOfType(Messages.YouInfectedSomeoneMsg.class);
+    assertThat(youInfectedSomeoneMsgs).hasSize(1);
+    // Average compliance is 0.25, so person 1 moves halfway from 0.5 towards it.
+    assertThat(youInfectedSomeoneMsgs.get(0).newlyInfectedCompliancePhysicalDistancing)
+        .isEqualTo(0.375);
+  }
+
+  @Test
+  public void testPlaceTypeCounters() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.BUILDING.ordinal());
+    testPlaceAgent.init();
+    testKit.send(Messages.PlaceMessage.class, msg -> msg.placeInfo = placeInfo)
+        .to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.receivePlace);
+    testKit.getGlobals().baseInfectivity = 1.0;
+
+    sendInfectedIAmHereMsgWithPersonId(testKit, testPlaceAgent, 0);
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 2);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+    testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+
+    int placeType = TAUModel.PlaceType.BUILDING.ordinal();
+    assertThat(testPlaceAgent.getLongAccumulator(PlaceTypeCounters.totalPeople(placeType)).value())
+        .isEqualTo(3);
+    assertThat(testPlaceAgent.getLongAccumulator(PlaceTypeCounters.startedInfected(placeType)).value())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testNoInfectiousOccupants_noInfections() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.BUILDING.ordinal());
+    testPlaceAgent.init();
+    testKit.send(Messages.PlaceMessage.class, msg -> msg.placeInfo = placeInfo)
+        .to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.receivePlace);
+    testKit.getGlobals().baseInfectivity = 1.0;
+
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 0);
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+    TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+
+    assertThat(result.getMessagesOfType(Messages.InfectionMsg.class)).isEmpty();
+    int placeType = TAUModel.PlaceType.BUILDING.ordinal();
+    assertThat(testPlaceAgent.getLongAccumulator(PlaceTypeCounters.totalPeople(placeType)).value())
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void testNoInfectiousOccupants_countsPeopleOnce() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.BUILDING.ordinal());
+    testPlaceAgent.init();
+    testKit.send(Messages.PlaceMessage.class, msg -> msg.placeInfo = placeInfo)
+        .to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.receivePlace);
+    // Infected, but not infectious yet.
+    Person.PersonTransmissibilityInfo infected =
+        Person.PersonTransmissibilityInfo.create(
+            Person.InfectionStatus.INFECTED, false, false, Person.MaskType.NONE, 0, 0, 0, 0);
+
+    for (int i = 0; i < 2; i++) {
+      testKit.send(Messages.IAmHereMsg.class, msg -> msg.transmissibilityInfo = infected, 0)
+          .to(testPlaceAgent.getID());
+    }
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+    TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+
+    assertThat(result.getMessagesOfType(Messages.InfectionMsg.class)).isEmpty();
+    int placeType = TAUModel.PlaceType.BUILDING.ordinal();
+    assertThat(testPlaceAgent.getLongAccumulator(PlaceTypeCounters.totalPeople(placeType)).value())
+        .isEqualTo(2);
+    assertThat(testPlaceAgent.getLongAccumulator(PlaceTypeCounters.startedInfected(placeType)).value())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testGetWhoToInfect_legacyDrawOrderMatchesBaseline() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.BUILDING.ordinal());
+    testPlaceAgent.init();
+    testKit.send(Messages.PlaceMessage.class, msg -> msg.placeInfo = placeInfo)
+        .to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.receivePlace);
+    Globals globals = testKit.getGlobals();
+    globals.legacyContactDrawOrder = true;
+    globals.baseInfectivity = 0.5;
+    double baseInfectionRate = globals.getInfectionRate(placeInfo.placeType()) / globals.tOneDay;
+
+    Random synthetic = new Random(11);
+    int numOccupants = 40;
+    long[] ids = new long[numOccupants];
+    Person.PersonTransmissibilityInfo[] infos = new Person.PersonTransmissibilityInfo[numOccupants];
+    for (int i = 0; i < numOccupants; i++) {
+      boolean isInfectious = synthetic.nextInt(3) == 0;
+      ids[i] = 100 + i;
+      infos[i] =
+          Person.PersonTransmissibilityInfo.create(
+              isInfectious ? Person.InfectionStatus.INFECTED : Person.InfectionStatus.SUSCEPTIBLE,
+              isInfectious,
+              false,
+              synthetic.nextBoolean() ? Person.MaskType.N95 : Person.MaskType.NONE,
+              synthetic.nextDouble() * 0.5,
+              4,
+              0,
+              0);
+    }
+    OccupantState occupants = new OccupantState();
+    occupants.fill(ids, infos, numOccupants, globals, SeededRandom.create(0));
+
+    for (int seed = 0; seed < 5; seed++) {
+      SeededRandom random = SeededRandom.create(seed);
+      TransmissionEvents events = testPlaceAgent.getWhoToInfect(occupants, globals, random);
+      Map<Long, Boolean> transmitted = new HashMap<>();
+      for (int slot = 0; slot < events.size(); slot++) {
+        transmitted.put(events.recipient(slot), events.transmitted(slot));
+      }
+
+      // The baseline sampled each infectious occupant's contacts and then evaluated them, one
+      // occupant after the other.
+      SeededRandom reference = SeededRandom.create(seed);
+      Map<Long, Boolean> expected = new HashMap<>();
+      for (int i = 0; i < numOccupants; i++) {
+        if (!occupants.infectious[i]) {
+          continue;
+        }
+        List<Integer> contacts = new ArrayList<>();
+        for (int c = 0; c < occupants.contactRate[i]; c++) {
+          int contact = reference.discrete(0, numOccupants - 2).sample();
+          contacts.add(contact >= i ? contact + 1 : contact);
+        }
+        for (int contact : contacts) {
+          expected.put(
+              occupants.ids[contact],
+              DefaultModulesImpl.willInfect(occupants, i, contact, baseInfectionRate, reference));
+        }
+      }
+
+      assertThat(expected.containsValue(true)).isTrue();
+      assertThat(transmitted).isEqualTo(expected);
+      // Both are left at the same point of the stream.
+      assertThat(random.uniform(0, 1).sample()).isEqualTo(reference.uniform(0, 1).sample());
+    }
+  }
+
+  @Test
+  public void testInfoExchange_disabled() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.BUILDING.ordinal());
+    testPlaceAgent.init();
+    testKit.send(Messages.PlaceMessage.class, msg -> msg.placeInfo = placeInfo)
+        .to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.receivePlace);
+    testKit.getGlobals().infoExchangeLikelihood = 1.0;
+
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 0);
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+    TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+
+    assertThat(result.getMessagesOfType(Messages.InfoExchangeMsg.class)).isEmpty();
+  }
+
+  @Test
+  public void testInfoExchange_enabled() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.BUILDING.ordinal());
+    testPlaceAgent.init();
+    testKit.send(Messages.PlaceMessage.class, msg -> msg.placeInfo = placeInfo)
+        .to(testPlaceAgent.getID());
+    testKit.testAction(testPlaceAgent, PlaceAgent.receivePlace);
+    testKit.getGlobals().infoExchangeMask = true;
+    testKit.getGlobals().infoExchangeLikelihood = 1.0;
+
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 0);
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+    TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+
+    List<Messages.InfoExchangeMsg> infoExchangeMsgs =
+        result.getMessagesOfType(Messages.InfoExchangeMsg.class);
+    assertThat(infoExchangeMsgs).isNotEmpty();
+    for (Messages.InfoExchangeMsg msg : infoExchangeMsgs) {
+      assertThat(msg.newAffiliationSpectrum)
+          .isEqualTo(Person.PersonTransmissibilityInfo.dummy().affiliationSpectrum());
+    }
+  }
+
+  @Test
+  public void testForwardOccupants() {
+    int suite = TAUModel.PlaceType.SUITE.ordinal();
+    int floor = TAUModel.PlaceType.FLOOR.ordinal();
+    PlaceInfo enclosing = TestUtils.createPlaceInfoWithAgent("floor", floor, testKit);
+    placeInfo = PlaceInfo.create("suite", suite);
+    placeInfo.setEnclosingPlaces(ImmutableList.of(enclosing));
+    testPlaceAgent.init();
+    testPlaceAgent.setPlaceInfo(placeInfo);
+
+    testKit.send(Messages.IAmHereMsg.class, msg -> {
+      msg.transmissibilityInfo = Person.PersonTransmissibilityInfo.dummy();
+      msg.enclosingPlaceInfos =
+          new Person.PersonTransmissibilityInfo[] {Person.PersonTransmissibilityInfo.dummyInfected()};
+    }, 1).to(testPlaceAgent.getID());
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 2);
+    TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+
+    List<Messages.ForwardedOccupantsMsg> forwarded =
+        result.getMessagesOfType(Messages.ForwardedOccupantsMsg.class);
+    assertThat(forwarded).hasSize(1);
+    assertThat(forwarded.get(0).personIds).asList().containsExactly(1L);
+    assertThat(forwarded.get(0).transmissibilityInfos).asList()
+        .containsExactly(Person.PersonTransmissibilityInfo.dummyInfected());
+
+    // The people who reported to the place are kept for the next phase.
+    testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+    assertThat(testPlaceAgent.getLongAccumulator(PlaceTypeCounters.totalPeople(suite)).value())
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void testGenerateContactsAndInfect_forwardedOccupants() {
+    placeInfo = PlaceInfo.create("place", TAUModel.PlaceType.FLOOR.ordinal());
+    testPlaceAgent.init();
+    testPlaceAgent.setPlaceInfo(placeInfo);
+    testKit.getGlobals().baseInfectivity = 1.0;
+
+    sendIAmHereMsgWithPersonId(testKit, testPlaceAgent, 1);
+    testKit.testAction(testPlaceAgent, PlaceAgent.forwardOccupants);
+    testKit.send(Messages.ForwardedOccupantsMsg.class, msg -> {
+      msg.personIds = new long[] {0};
+      msg.transmissibilityInfos =
+          new Person.PersonTransmissibilityInfo[] {Person.PersonTransmissibilityInfo.dummyInfected()};
+    }).to(testPlaceAgent.getID());
+    TestResult result = testKit.testAction(testPlaceAgent, PlaceAgent.generateContactsAndInfect);
+
+    assertThat(result.getMessagesOfType(Messages.InfectionMsg.class)).hasSize(1);
+    assertThat(result.getMessagesOfType(Messages.YouInfectedSomeoneMsg.class)).hasSize(1);
+  }
+
   private static void sendIAmHereMsgWithPersonId(TestKit<Globals> testKit, PlaceAgent placeAgent, long personId) {
     testKit.send(Messages.IAmHereMsg.class, msg ->
     {
@@ -0,0 +1,61 @@
+package core;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StepScheduleTest {
+
+  private final PlaceInfo a = PlaceInfo.create("A", 0);
+  private final PlaceInfo b = PlaceInfo.create("B", 0);
+
+  @Test
+  public void testPlacesAtStep() {
+    StepSchedule schedule =
+        StepSchedule.of(
+            ImmutableList.of(ImmutableList.of(a, b), ImmutableList.of(), ImmutableList.of(b)));
+
+    assertThat(schedule.numSteps()).isEqualTo(3);
+    assertThat(schedule.placesAtStep(0)).containsExactly(a, b).inOrder();
+    assertThat(schedule.placesAtStep(1)).isEmpty();
+    assertThat(schedule.placesAtStep(2)).containsExactly(b);
+  }
+
+  @Test
+  public void testInterner_sharesSchedulesWithTheSamePlaces() {
+    StepSchedule.Interner interner = new StepSchedule.Interner();
+    StepSchedule first = interner.intern(StepSchedule.of(ImmutableList.of(ImmutableList.of(a))));
+    StepSchedule second = interner.intern(StepSchedule.of(ImmutableList.of(ImmutableList.of(a))));
+    StepSchedule other = interner.intern(StepSchedule.of(ImmutableList.of(ImmutableList.of(b))));
+
+    assertThat(second).isSameAs(first);
+    assertThat(other).isNotSameAs(first);
+    assertThat(interner.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testInterner_comparesPlacesByIdentity() {
+    PlaceInfo equalToA = PlaceInfo.create("A", 0);
+    StepSchedule.Interner interner = new StepSchedule.Interner();
+    StepSchedule first = interner.intern(StepSchedule.of(ImmutableList.of(ImmutableList.of(a))));
+    StepSchedule second =
+        interner.intern(StepSchedule.of(ImmutableList.of(ImmutableList.of(equalToA))));
+
+    assertThat(second).isEqualTo(first);
+    assertThat(second).isNotSameAs(first);
+  }
+
+  @Test
+  public void testPlacesAtStepSortedByPlaceId() {
+    a.receivePlaceAgent(2);
+    b.receivePlaceAgent(1);
+    StepSchedule schedule =
+        StepSchedule.of(ImmutableList.of(ImmutableList.of(a, b), ImmutableList.of(a)));
+
+    assertThat(schedule.placesAtStepSortedByPlaceId(0)).containsExactly(b, a).inOrder();
+    assertThat(schedule.placesAtStepSortedByPlaceId(1)).containsExactly(a);
+    assertThat(schedule.placesAtStepSortedByPlaceId(0))
+        .isSameAs(schedule.placesAtStepSortedByPlaceId(0));
+  }
+}
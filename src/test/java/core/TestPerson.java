@@ -9,8 +9,8 @@ public final class TestPerson extends Person {
 
   PersonInitializationInfo.Builder initializationBuilder = PersonInitializationInfo.dummyBuilder();
 
-  InfectionTrajectoryDistribution infectionTrajectoryDistribution =
-      InfectionTrajectoryDistribution.dummyBuilder().build();
+  InfectionTrajectoryModel infectionTrajectoryModel =
+      InfectionTrajectoryModel.create(InfectionTrajectoryDistribution.dummyBuilder().build());
 
   public PlaceInfo getNextPlace() {
     return nextPlaceInfo;
@@ -51,13 +51,13 @@ public final class TestPerson extends Person {
   }
 
   @Override
-  public InfectionTrajectoryDistribution getInfectionTrajectoryDistribution() {
-    return infectionTrajectoryDistribution;
+  public InfectionTrajectoryModel getInfectionTrajectoryModel() {
+    return infectionTrajectoryModel;
   }
 
   public void setInfectionTrajectoryDistribution(
       InfectionTrajectoryDistribution infectionTrajectoryDistribution) {
-    this.infectionTrajectoryDistribution = infectionTrajectoryDistribution;
+    this.infectionTrajectoryModel = InfectionTrajectoryModel.create(infectionTrajectoryDistribution);
   }
 
   @Override
@@ -45,7 +45,16 @@ public class TestRunner {
   public TestRunner(TestKit<Globals> testKit, CentralAgent centralAgent) {
     this.testKit = testKit;
     this.centralAgent = centralAgent;
-    testKit.getGlobals().initBuildingInfectionArrays(1);
+    createPlaceTypeCountersUpTo(0);
+  }
+
+  private void createPlaceTypeCountersUpTo(int placeType) {
+    for (int i = testKit.getGlobals().buildingInfectionsBeginningOfStep.size(); i <= placeType; i++) {
+      testKit.createLongAccumulator(PlaceTypeCounters.totalPeople(i));
+      testKit.createLongAccumulator(PlaceTypeCounters.startedInfected(i));
+      testKit.createLongAccumulator(PlaceTypeCounters.gotInfected(i));
+    }
+    testKit.getGlobals().initBuildingInfectionArrays(placeType + 1);
   }
 
   public void setInfectionTrajectoryDistributionForNewPeople(InfectionTrajectoryDistribution d) {
@@ -64,6 +73,7 @@ public class TestRunner {
   }
 
   public PlaceAgent newPlaceAgent(String name, int type) {
+    createPlaceTypeCountersUpTo(type);
     PlaceInfo placeInfo = PlaceInfo.create(name, type);
     PlaceAgent pAgent = testKit.addAgent(PlaceAgent.class, placeAgent -> {
       placeAgent.setPlaceInfo(placeInfo);
@@ -92,6 +102,7 @@ public class TestRunner {
 
   public void moveAndInfect() {
     run(people, Person.executeMovement);
+    run(places, PlaceAgent.forwardOccupants);
     run(places, PlaceAgent.generateContactsAndInfect);
     run(people, Person.infectedByCOVID);
     run(centralAgent, CentralAgent.processPlaceInfectionRates); // Not sure this action works in tests
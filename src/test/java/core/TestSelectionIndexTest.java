@@ -0,0 +1,128 @@
+package core;
+
+import org.junit.Test;
+import simudyne.core.rng.SeededRandom;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSelectionIndexTest {
+
+  @Test
+  public void testSample_matchesScanningMultipliers() {
+    Random synthetic = new Random(3);
+    Map<Long, Double> multipliers = new LinkedHashMap<>();
+    TestSelectionIndex index = new TestSelectionIndex();
+    for (long id = 0; id < 500; id++) {
+      double multiplier = synthetic.nextInt(4) == 0 ? 0 : synthetic.nextDouble() * 3;
+      multipliers.put(id, multiplier);
+      index.setMultiplier(id, multiplier);
+    }
+    for (long id = 0; id < 500; id += 7) {
+      multipliers.remove(id);
+      index.removeAgent(id);
+    }
+
+    for (int seed = 0; seed < 5; seed++) {
+      Set<Long> expected = scanMultipliers(multipliers, SeededRandom.create(seed), 50);
+      assertThat(index.sample(50, SeededRandom.create(seed))).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testSample_onlyZeroMultipliersLeft() {
+    TestSelectionIndex index = new TestSelectionIndex();
+    index.setMultiplier(1L, 0.0);
+    index.setMultiplier(2L, 2.0);
+    index.setMultiplier(3L, 0.0);
+
+    assertThat(index.sample(3, SeededRandom.create(1))).containsExactly(2L);
+  }
+
+  @Test
+  public void testSample_afterManyUpdates() {
+    Random synthetic = new Random(5);
+    TestSelectionIndex index = new TestSelectionIndex();
+    Set<Long> samplable = new HashSet<>();
+    for (long id = 0; id < 200; id++) {
+      index.setMultiplier(id, 0.1);
+      samplable.add(id);
+    }
+
+    for (int round = 0; round < 100; round++) {
+      // Large multipliers that are set back to small ones leave rounding residue in the tree.
+      for (int i = 0; i < 50; i++) {
+        long id = synthetic.nextInt(200);
+        index.setMultiplier(id, 1e12);
+        index.setMultiplier(id, synthetic.nextInt(3) == 0 ? 0 : 0.1);
+        if (index.get(id) > 0) {
+          samplable.add(id);
+        } else {
+          samplable.remove(id);
+        }
+      }
+      Set<Long> sampled = index.sample(30, SeededRandom.create(round));
+      assertThat(sampled).hasSize(Math.min(30, samplable.size()));
+      assertThat(samplable).containsAllIn(sampled);
+      for (long id : sampled) {
+        index.removeAgent(id);
+        samplable.remove(id);
+        index.setMultiplier(id, 0.1);
+        samplable.add(id);
+      }
+    }
+  }
+
+  @Test
+  public void testMapView() {
+    TestSelectionIndex index = new TestSelectionIndex();
+    for (long id = 20; id > 0; id--) {
+      index.setMultiplier(id, (double) id);
+    }
+    index.setMultiplier(5L, 50.0);
+    index.removeAgent(10L);
+
+    assertThat(index).hasSize(19);
+    assertThat(index.get(5L)).isEqualTo(50.0);
+    assertThat(index).doesNotContainKey(10L);
+    assertThat(index.keySet().iterator().next()).isEqualTo(20L);
+    assertThat(index.sample(1, SeededRandom.create(1))).doesNotContain(10L);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testMapView_isReadOnly() {
+    TestSelectionIndex index = new TestSelectionIndex();
+    index.setMultiplier(1L, 1.0);
+
+    index.remove(1L);
+  }
+
+  // The selection made by DefaultModulesImpl#getAgentsToTest before it used the index.
+  private static Set<Long> scanMultipliers(
+      Map<Long, Double> multipliers, SeededRandom random, long numToSample) {
+    Set<Long> sampled = new HashSet<>();
+    double sumAllMultipliers = multipliers.values().stream().reduce(0.0, Double::sum);
+    double sumSampled = 0;
+    while (sampled.size() < numToSample && sampled.size() < multipliers.size()) {
+      double selection = random.uniform(0, sumAllMultipliers - sumSampled).sample();
+      double curSum = 0.0;
+      for (Map.Entry<Long, Double> entry : multipliers.entrySet()) {
+        if (sampled.contains(entry.getKey())) {
+          continue;
+        }
+        curSum += entry.getValue();
+        if (selection < curSum) {
+          sampled.add(entry.getKey());
+          sumSampled += entry.getValue();
+          break;
+        }
+      }
+    }
+    return sampled;
+  }
+}
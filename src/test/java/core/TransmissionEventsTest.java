@@ -0,0 +1,71 @@
+package core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TransmissionEventsTest {
+
+  private final TransmissionEvents events = new TransmissionEvents();
+
+  @Test
+  public void testPut_lastContactWins() {
+    events.put(5, 5, 1, 0, 1, true);
+    events.put(5, 5, 2, 0, 2, false);
+    events.put(6, 6, 1, 3, 1, true);
+
+    assertThat(events.size()).isEqualTo(2);
+    assertThat(events.sortTransmitted()).isEqualTo(1);
+    assertThat(events.recipient(events.transmittedInOrder()[0])).isEqualTo(6);
+  }
+
+  @Test
+  public void testSortTransmitted_matchesSortedMap() {
+    Random random = new Random(7);
+    for (int round = 0; round < 3; round++) {
+      events.clear();
+      Map<Long, Boolean> expected = new HashMap<>();
+      for (int i = 0; i < 1000; i++) {
+        long id = random.nextInt(500);
+        boolean transmitted = random.nextBoolean();
+        events.put(id, id, id + 1, 0, 0, transmitted);
+        expected.put(id, transmitted);
+      }
+
+      TreeMap<Long, Long> expectedTransmitted = new TreeMap<>();
+      expected.forEach((id, transmitted) -> {
+        if (transmitted) {
+          expectedTransmitted.put(id, id + 1);
+        }
+      });
+      assertThat(events.size()).isEqualTo(expected.size());
+      int numTransmitted = events.sortTransmitted();
+      assertThat(numTransmitted).isEqualTo(expectedTransmitted.size());
+      int i = 0;
+      for (Map.Entry<Long, Long> entry : expectedTransmitted.entrySet()) {
+        int slot = events.transmittedInOrder()[i++];
+        assertThat(events.recipient(slot)).isEqualTo(entry.getKey());
+        assertThat(events.source(slot)).isEqualTo(entry.getValue());
+        assertThat(events.transmitted(slot)).isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void testSortTransmitted_tiesKeepInsertionOrder() {
+    // At STAR places the center can be the recipient of several events.
+    for (int i = 0; i < 40; i++) {
+      events.put(100 + i, 1, 100 + i, 0, 0, true);
+    }
+
+    assertThat(events.sortTransmitted()).isEqualTo(40);
+    for (int i = 0; i < 40; i++) {
+      assertThat(events.source(events.transmittedInOrder()[i])).isEqualTo(100 + i);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package core;
+
+import org.junit.Before;
+import org.junit.Test;
+import simudyne.core.rng.SeededRandom;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TransmissionKernelTest {
+  private static final int NUM_OCCUPANTS = 50;
+  private static final int NUM_PAIRS = 2000;
+
+  private final OccupantState occupants = new OccupantState();
+  private final int[] infected = new int[NUM_PAIRS];
+  private final int[] infectees = new int[NUM_PAIRS];
+
+  @Before
+  public void setUp() {
+    Random r = new Random(7);
+    long[] ids = new long[NUM_OCCUPANTS];
+    Person.PersonTransmissibilityInfo[] infos = new Person.PersonTransmissibilityInfo[NUM_OCCUPANTS];
+    for (int i = 0; i < NUM_OCCUPANTS; i++) {
+      ids[i] = i;
+      boolean isInfectious = r.nextBoolean();
+      infos[i] =
+          Person.PersonTransmissibilityInfo.create(
+              isInfectious ? Person.InfectionStatus.INFECTED : Person.InfectionStatus.SUSCEPTIBLE,
+              isInfectious,
+              false,
+              r.nextBoolean() ? Person.MaskType.N95 : Person.MaskType.NONE,
+              r.nextDouble() * 0.5,
+              3,
+              0,
+              0);
+    }
+    occupants.fill(ids, infos, NUM_OCCUPANTS, new Globals(), SeededRandom.create(0));
+
+    for (int k = 0; k < NUM_PAIRS; k++) {
+      infected[k] = r.nextInt(NUM_OCCUPANTS);
+      infectees[k] = r.nextInt(NUM_OCCUPANTS);
+    }
+  }
+
+  @Test
+  public void testEvaluate_matchesWillInfect() {
+    for (double baseInfectionRate : new double[] {0.05, 0.5, 1.0}) {
+      SeededRandom kernelRandom = SeededRandom.create(42);
+      SeededRandom referenceRandom = SeededRandom.create(42);
+
+      BitSet transmissions =
+          new TransmissionKernel()
+              .evaluate(occupants, infected, infectees, NUM_PAIRS, baseInfectionRate, kernelRandom);
+
+      BitSet expected = new BitSet();
+      for (int k = 0; k < NUM_PAIRS; k++) {
+        if (DefaultModulesImpl.willInfect(
+            occupants, infected[k], infectees[k], baseInfectionRate, referenceRandom)) {
+          expected.set(k);
+        }
+      }
+      assertThat(expected.cardinality()).isGreaterThan(0);
+      assertThat(transmissions).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testEvaluate_noPairs() {
+    BitSet transmissions =
+        new TransmissionKernel()
+            .evaluate(occupants, infected, infectees, 0, 1.0, SeededRandom.create(1));
+
+    assertThat(transmissions.isEmpty()).isTrue();
+  }
+}
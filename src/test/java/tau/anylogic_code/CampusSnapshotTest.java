@@ -0,0 +1,241 @@
+package tau.anylogic_code;
+
+import core.Globals;
+import core.Person;
+import com.google.common.hash.Hashing;
+import core.PlaceInfo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import simudyne.core.abm.testkit.TestKit;
+import tau.Faculty;
+import tau.Staff;
+import tau.Student;
+import tau.UniversityConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.fail;
+
+public class CampusSnapshotTest {
+  private static final String EXPECTED_CAMPUS_HASH =
+      "db1e0039368892f8acd48f260cb8da5bbc285588b064b5c38a7dc06a28c8b62c";
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private TestKit<Globals> testKit;
+  private final List<Person> allPeople = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    testKit = TestKit.create(Globals.class);
+    testKit.getGlobals().nAgents = 500;
+    testKit.getGlobals().universityProfile = Globals.UniversityProfile.SCALABLE.ordinal();
+    // Small enough that some places are split into shards.
+    testKit.getGlobals().placeShardSize = 20;
+    UniversityConfiguration universityConfiguration =
+        testKit.getGlobals().getUniversityConfiguration();
+
+    for (int i = 0; i < universityConfiguration.numStaff(); i++) {
+      allPeople.add(testKit.addAgent(Staff.class, Staff::init));
+    }
+    for (int i = 0; i < universityConfiguration.numStudents(); i++) {
+      allPeople.add(testKit.addAgent(Student.class, Student::init));
+    }
+    for (int i = 0; i < universityConfiguration.numFaculty(); i++) {
+      allPeople.add(testKit.addAgent(Faculty.class, Faculty::init));
+    }
+  }
+
+  @Test
+  public void testRead_sameCampusAsBuilt() throws Exception {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    long numConnections =
+        staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Map<Long, Person.DailySchedule> schedules =
+        staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+    Path file = folder.getRoot().toPath().resolve("campus.bin");
+    staticNetworkBuilder.writeSnapshot(file, schedules);
+
+    CampusSnapshot snapshot = CampusSnapshot.load(file);
+    CampusSnapshot.Campus campus = snapshot.read();
+
+    assertThat(campus.numConnections()).isEqualTo(numConnections);
+    List<PlaceInfo> places = new ArrayList<>(staticNetworkBuilder.getAllPlaces());
+    assertThat(campus.places()).containsExactlyElementsIn(places).inOrder();
+    assertThat(places.stream().anyMatch(p -> p.numShards() > 1)).isTrue();
+    List<PlaceInfo> loadedPlaces = new ArrayList<>(campus.places());
+    for (int i = 0; i < places.size(); i++) {
+      assertThat(enclosingPlaces(loadedPlaces.get(i))).isEqualTo(enclosingPlaces(places.get(i)));
+    }
+    assertThat(campus.dailySchedules().keySet()).containsExactlyElementsIn(schedules.keySet())
+        .inOrder();
+    for (Person person : allPeople) {
+      Person.DailySchedule built = schedules.get(person.personID);
+      Person.DailySchedule loaded = campus.dailySchedules().get(person.personID);
+      for (int step = 0; step < built.numSteps(); step++) {
+        assertThat(loaded.placesAtStep(step)).isEqualTo(built.placesAtStep(step));
+      }
+      assertThat(loaded.isolationPlaces()).isEqualTo(built.isolationPlaces());
+      assertThat(attributesAfterInit(person, loaded))
+          .isEqualTo(attributesAfterInit(person, built));
+    }
+  }
+
+  @Test
+  public void testLoad_sharedButReadPerRun() throws Exception {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Path file = folder.getRoot().toPath().resolve("campus.bin");
+    staticNetworkBuilder.writeSnapshot(
+        file, staticNetworkBuilder.createPlacesAndPersonDailySchedules());
+
+    CampusSnapshot snapshot = CampusSnapshot.load(file);
+
+    assertThat(CampusSnapshot.load(file)).isSameAs(snapshot);
+    PlaceInfo place = snapshot.read().places().iterator().next();
+    assertThat(snapshot.read().places().iterator().next()).isNotSameAs(place);
+    assertThat(CampusSnapshot.load(folder.getRoot().toPath().resolve("missing.bin"))).isNull();
+  }
+
+  @Test
+  public void testLoad_keepsFewFilesMapped() throws Exception {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Path file = folder.getRoot().toPath().resolve("campus.bin");
+    staticNetworkBuilder.writeSnapshot(
+        file, staticNetworkBuilder.createPlacesAndPersonDailySchedules());
+    CampusSnapshot snapshot = CampusSnapshot.load(file);
+
+    for (int i = 0; i < CampusSnapshot.MAX_MAPPED_SNAPSHOTS; i++) {
+      Path copy = folder.getRoot().toPath().resolve("copy" + i + ".bin");
+      Files.copy(file, copy);
+      assertThat(CampusSnapshot.load(copy)).isNotNull();
+    }
+
+    assertThat(CampusSnapshot.load(file)).isNotSameAs(snapshot);
+  }
+
+  @Test
+  public void testLoad_corruptFile() throws Exception {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Path file = folder.getRoot().toPath().resolve("corrupt.bin");
+    staticNetworkBuilder.writeSnapshot(
+        file, staticNetworkBuilder.createPlacesAndPersonDailySchedules());
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(file, bytes);
+
+    try {
+      CampusSnapshot.load(file);
+      fail("A corrupt snapshot was loaded.");
+    } catch (IOException expected) {
+    }
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+    try {
+      CampusSnapshot.load(file);
+      fail("A truncated snapshot was loaded.");
+    } catch (IOException expected) {
+    }
+  }
+
+  /**
+   * Snapshots are only keyed by their inputs and {@link CampusSnapshot#VERSION}, so a change to the
+   * campus built from the same inputs has to change the version too, or runs load stale campuses.
+   * When this fails, bump {@link CampusSnapshot#VERSION} and update both expected values.
+   */
+  @Test
+  public void testVersion() {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Map<Long, Person.DailySchedule> schedules =
+        staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+
+    String campus = describe(staticNetworkBuilder.getAllPlaces(), schedules);
+    assertThat(CampusSnapshot.VERSION + ":" + Hashing.sha256().hashString(campus, UTF_8))
+        .isEqualTo("2:" + EXPECTED_CAMPUS_HASH);
+  }
+
+  @Test
+  public void testFileName() {
+    String fileName = CampusSnapshot.fileName(allPeople, testKit.getGlobals());
+
+    assertThat(CampusSnapshot.fileName(allPeople, testKit.getGlobals())).isEqualTo(fileName);
+    testKit.getGlobals().tOneDay = 2;
+    assertThat(CampusSnapshot.fileName(allPeople, testKit.getGlobals())).isNotEqualTo(fileName);
+    testKit.getGlobals().tOneDay = 1;
+    assertThat(CampusSnapshot.fileName(allPeople.subList(1, allPeople.size()), testKit.getGlobals()))
+        .isNotEqualTo(fileName);
+  }
+
+  // Describes the campus by the index of each person in allPeople rather than by their id, which
+  // depends on the order the test kit creates agents in.
+  private String describe(Set<PlaceInfo> places, Map<Long, Person.DailySchedule> schedules) {
+    Map<Long, Integer> personIndices = new HashMap<>();
+    for (int i = 0; i < allPeople.size(); i++) {
+      personIndices.put(allPeople.get(i).personID, i);
+    }
+    StringBuilder description = new StringBuilder();
+    for (PlaceInfo place : places) {
+      description.append(place.placeName()).append(' ').append(place.placeType()).append(' ')
+          .append(place.placeOptionality()).append(' ').append(place.networkType()).append(' ')
+          .append(personIndices.getOrDefault(place.center(), -1)).append(' ')
+          .append(place.debugNotes()).append(' ').append(place.capacity()).append(' ')
+          .append(place.numShards()).append(' ').append(enclosingPlaces(place)).append('\n');
+    }
+    for (Person person : allPeople) {
+      Person.DailySchedule schedule = schedules.get(person.personID);
+      description.append(personIndices.get(person.personID)).append(':');
+      for (int step = 0; step < schedule.numSteps(); step++) {
+        for (PlaceInfo place : schedule.placesAtStep(step)) {
+          description.append(place.placeName()).append(',');
+        }
+        description.append('|');
+      }
+      description.append(schedule.isolationPlaces()).append(' ')
+          .append(attributesAfterInit(person, schedule)).append('\n');
+    }
+    return description.toString();
+  }
+
+  private static List<String> enclosingPlaces(PlaceInfo place) {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < place.numEnclosingPlaces(); i++) {
+      names.add(place.enclosingPlace(i).placeName());
+    }
+    return names;
+  }
+
+  // Runs the secondary initialization of the schedule on the person from scratch.
+  private static String attributesAfterInit(Person person, Person.DailySchedule schedule) {
+    if (person instanceof Student) {
+      Student student = (Student) person;
+      student.type = null;
+      student.isPartTime = false;
+      student.livesOnCampus = false;
+      student.livesAtBuilding = null;
+      schedule.secondaryInitialization().accept(student);
+      return student.type + " " + student.isPartTime + " " + student.livesOnCampus + " "
+          + student.livesAtBuilding;
+    }
+    if (person instanceof Staff) {
+      Staff staff = (Staff) person;
+      staff.isStaffWithStudentFacingJob = false;
+      schedule.secondaryInitialization().accept(staff);
+      return String.valueOf(staff.isStaffWithStudentFacingJob);
+    }
+    return "";
+  }
+}
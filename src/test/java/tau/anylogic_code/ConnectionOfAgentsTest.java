@@ -1,9 +1,14 @@
 package tau.anylogic_code;
 
+import com.google.common.collect.ImmutableList;
 import core.Globals;
+import core.Person;
 import org.junit.Before;
 import org.junit.Test;
 import simudyne.core.abm.testkit.TestKit;
+import tau.Student;
+
+import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -35,4 +40,70 @@ public class ConnectionOfAgentsTest {
 
     ConnectionOfAgents c = new ConnectionOfAgents(1, 2, 1);
   }
+
+  @Test
+  public void testMembership() {
+    testKit.getGlobals().tOneDay = 1;
+    ConnectionOfAgents.tOneDay = testKit.getGlobals().tOneDay;
+    ConnectionOfAgents c = new ConnectionOfAgents(1);
+    Student first = testKit.addAgent(Student.class);
+    Student second = testKit.addAgent(Student.class);
+    Student third = testKit.addAgent(Student.class);
+
+    c.addPerson(second);
+    c.addPeople(ImmutableList.of(first, third, first));
+    assertThat(c.getPeople()).containsExactly(second, first, third, first).inOrder();
+    assertThat(c.containsPerson(first)).isTrue();
+
+    c.removePerson(first);
+    assertThat(c.containsPerson(first)).isTrue();
+    c.removePerson(first);
+    assertThat(c.containsPerson(first)).isFalse();
+    assertThat(c.getPeople()).containsExactly(second, third).inOrder();
+
+    c.clearPeople();
+    assertThat(c.containsPerson(second)).isFalse();
+    assertThat(c.getPeople()).isEmpty();
+    c.addPerson(second);
+    assertThat(c.containsPerson(second)).isTrue();
+  }
+
+  @Test
+  public void testRemovePerson_keepsOrder() {
+    testKit.getGlobals().tOneDay = 1;
+    ConnectionOfAgents.tOneDay = testKit.getGlobals().tOneDay;
+    ConnectionOfAgents c = new ConnectionOfAgents(1);
+    Student first = testKit.addAgent(Student.class);
+    Student second = testKit.addAgent(Student.class);
+    Student third = testKit.addAgent(Student.class);
+
+    c.addPeople(ImmutableList.of(first, second, first, third));
+    List<Person> people = c.getPeople();
+    c.removePerson(first);
+    c.removePerson(third);
+    assertThat(c.getNumPeople()).isEqualTo(2.0);
+    assertThat(people).containsExactly(second, first).inOrder();
+    c.addPerson(third);
+    assertThat(c.people()).containsExactly(second, first, third).inOrder();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testPeopleIsReadOnly() {
+    testKit.getGlobals().tOneDay = 1;
+    ConnectionOfAgents.tOneDay = testKit.getGlobals().tOneDay;
+    ConnectionOfAgents c = new ConnectionOfAgents(1);
+
+    c.getPeople().add(testKit.addAgent(Student.class));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddPersonTwice() {
+    testKit.getGlobals().tOneDay = 1;
+    ConnectionOfAgents.tOneDay = testKit.getGlobals().tOneDay;
+    ConnectionOfAgents c = new ConnectionOfAgents(1);
+    Student student = testKit.addAgent(Student.class);
+
+    c.addPerson(student);
+    c.addPerson(student);
+  }
 }
@@ -1,9 +1,14 @@
 package tau.anylogic_code;
 
 import core.Globals;
+import core.Person;
 import org.junit.Before;
 import org.junit.Test;
 import simudyne.core.abm.testkit.TestKit;
+import tau.Faculty;
+import tau.Student;
+
+import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -71,4 +76,32 @@ public class CourseTest {
     assertThat(mwfCourse.isEventHappeningNow(16, 2)).isFalse();
     assertThat(oneDayCourse.isEventHappeningNow(16, 2)).isFalse();
   }
+
+  @Test
+  public void testSections_matchGetPeople() {
+    testKit.getGlobals().tOneDay = 1;
+    ConnectionOfAgents.tOneDay = testKit.getGlobals().tOneDay;
+    for (Course.ClassSchedule schedule : Course.ClassSchedule.values()) {
+      Course course = new Course(schedule.ordinal(), true, 0, 0);
+      course.addInstructor(testKit.addAgent(Faculty.class));
+      for (int i = 0; i < 10; i++) {
+        course.addPerson(testKit.addAgent(Student.class));
+      }
+
+      int numSections = schedule == Course.ClassSchedule.MWF ? 3 : 2;
+      int numStudentsInSections = 0;
+      for (int session = 0; session < 2 * numSections; session++) {
+        course.sectionGoingToThisSession = session;
+        List<Person> people = course.getPeople();
+
+        assertThat(people.get(0)).isSameAs(course.instructor);
+        assertThat(people.subList(1, people.size()))
+            .containsExactlyElementsIn(
+                course.people().subList(course.sectionStart(session), course.sectionEnd(session)))
+            .inOrder();
+        numStudentsInSections += people.size() - 1;
+      }
+      assertThat(numStudentsInSections).isEqualTo(2 * 10);
+    }
+  }
 }
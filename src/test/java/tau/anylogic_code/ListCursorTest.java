@@ -0,0 +1,43 @@
+package tau.anylogic_code;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ListCursorTest {
+
+  @Test
+  public void testNext_handsOutElementsInOrder() {
+    ListCursor<Integer> cursor = new ListCursor<>(ImmutableList.of(1, 2, 3, 4, 5));
+
+    assertThat(cursor.next()).isEqualTo(1);
+    assertThat(cursor.next(2)).containsExactly(2, 3).inOrder();
+    assertThat(cursor.numLeft()).isEqualTo(2);
+    assertThat(cursor.next(10)).containsExactly(4, 5).inOrder();
+    assertThat(cursor.isEmpty()).isTrue();
+    assertThat(cursor.next(1)).isEmpty();
+  }
+
+  @Test
+  public void testShuffleRemaining_drawsLikeShufflingTheRemainingList() {
+    ListCursor<Integer> cursor = new ListCursor<>(ImmutableList.of(1, 2, 3, 4, 5, 6, 7, 8));
+    List<Integer> remaining = new ArrayList<>(ImmutableList.of(4, 5, 6, 7, 8));
+
+    cursor.next(3);
+    cursor.shuffleRemaining(new Random(1));
+    Collections.shuffle(remaining, new Random(1));
+
+    assertThat(cursor.next(5)).containsExactlyElementsIn(remaining).inOrder();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNext_empty() {
+    new ListCursor<Integer>(ImmutableList.of()).next();
+  }
+}
@@ -5,6 +5,7 @@ import com.google.common.collect.Sets;
 import core.Globals;
 import core.Person;
 import core.PlaceInfo;
+import core.StepSchedule;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -13,9 +14,12 @@ import simudyne.core.abm.testkit.TestKit;
 import tau.Faculty;
 import tau.Staff;
 import tau.Student;
+import tau.TAUModel;
 import tau.UniversityConfiguration;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -216,4 +220,189 @@ public class StaticNetworkBuilderTest {
       previousPlaceInfos = placeInfos;
     }
   }
+
+  @Test
+  public void testPlaceSharding() {
+    testKit.getGlobals().placeShardSize = 100;
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+    Set<PlaceInfo> placeInfos = staticNetworkBuilder.getAllPlaces();
+
+    PlaceInfo fitnessCenter =
+        placeInfos.stream()
+            .filter(p -> p.placeName().startsWith("FitnessCenter") && p.numShards() > 1)
+            .findFirst()
+            .get();
+    int expectedShards = (allPeople.size() + 99) / 100;
+    assertThat(fitnessCenter.numShards()).isEqualTo(expectedShards);
+    assertThat(placeInfos.stream().filter(p -> p.placeName().startsWith("FitnessCenter")).count())
+        .isEqualTo(expectedShards);
+
+    for (int tStep = 0; tStep < 2; tStep++) {
+      final int t = tStep;
+      Set<PlaceInfo> shardsUsed =
+          allPeople.stream()
+              .map(p -> fitnessCenter.shardFor(p.getID(), t))
+              .collect(Collectors.toSet());
+      assertThat(shardsUsed).hasSize(expectedShards);
+      assertThat(placeInfos).containsAllIn(shardsUsed);
+    }
+    // Places with a center are never split.
+    placeInfos.stream()
+        .filter(p -> p.networkType() != PlaceInfo.NetworkType.FULLY_CONNECTED)
+        .forEach(p -> assertThat(p.numShards()).isEqualTo(1));
+  }
+
+  @Test
+  public void testStaffToStudentVisitors() {
+    testKit.getGlobals().sampleStaffToStudentVisitors = true;
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Map<Long, Person.DailySchedule> schedules =
+        staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+    List<PlaceInfo> staffPlaces =
+        staticNetworkBuilder.getAllPlaces().stream()
+            .filter(p -> p.networkType() == PlaceInfo.NetworkType.STAR)
+            .collect(Collectors.toList());
+    assertThat(staffPlaces).isNotEmpty();
+
+    int numSteps = schedules.values().iterator().next().placesAtStepMap().size();
+    for (PlaceInfo p : staffPlaces) {
+      for (int step = 0; step < numSteps; step++) {
+        final int s = step;
+        Set<Long> visitors =
+            schedules.entrySet().stream()
+                .filter(entry -> entry.getValue().placesAtStepMap().get(s).contains(p))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        if (!visitors.isEmpty()) {
+          assertThat(visitors).contains(p.center());
+          assertThat(visitors.size())
+              .isAtMost(testKit.getGlobals().numStaffToStudenContacts + 1);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStaffToStudentVisitors_disabled() {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Map<Long, Person.DailySchedule> schedules =
+        staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+    List<PlaceInfo> staffPlaces =
+        staticNetworkBuilder.getAllPlaces().stream()
+            .filter(p -> p.networkType() == PlaceInfo.NetworkType.STAR)
+            .collect(Collectors.toList());
+    assertThat(staffPlaces).isNotEmpty();
+
+    int numSteps = schedules.values().iterator().next().numSteps();
+    for (PlaceInfo p : staffPlaces) {
+      for (int step = 0; step < numSteps; step++) {
+        final int s = step;
+        Set<Long> visitors =
+            schedules.entrySet().stream()
+                .filter(entry -> entry.getValue().placesAtStep(s).contains(p))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        if (!visitors.isEmpty()) {
+          assertThat(visitors).doesNotContain(p.center());
+          assertThat(visitors).hasSize(p.capacity());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIdenticalSchedulesAreShared() {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Map<Long, Person.DailySchedule> schedules =
+        staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+
+    // Places are told apart by identity, like the interner does, as distinct places can be equal.
+    Map<PlaceInfo, Integer> placeIndices = new IdentityHashMap<>();
+    Map<List<List<Integer>>, StepSchedule> stepScheduleByPlaces = new HashMap<>();
+    Map<StepSchedule, List<List<Integer>>> placesByStepSchedule = new IdentityHashMap<>();
+    for (Person.DailySchedule schedule : schedules.values()) {
+      List<List<Integer>> places = new ArrayList<>();
+      for (int step = 0; step < schedule.numSteps(); step++) {
+        places.add(
+            schedule.placesAtStep(step).stream()
+                .map(p -> placeIndices.computeIfAbsent(p, unused -> placeIndices.size()))
+                .collect(Collectors.toList()));
+      }
+      StepSchedule shared =
+          stepScheduleByPlaces.computeIfAbsent(places, unused -> schedule.stepSchedule());
+      assertThat(schedule.stepSchedule()).isSameAs(shared);
+      assertThat(placesByStepSchedule.computeIfAbsent(shared, unused -> places)).isEqualTo(places);
+    }
+    assertThat(stepScheduleByPlaces.size()).isLessThan(schedules.size());
+  }
+
+  @Test
+  public void testNestedPlaces_enclosingPlacesAreScheduledTogether() {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Map<Long, Person.DailySchedule> schedules =
+        staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+    assertThat(
+        staticNetworkBuilder.getAllPlaces().stream().anyMatch(p -> p.numEnclosingPlaces() > 0))
+        .isTrue();
+
+    for (Person.DailySchedule schedule : schedules.values()) {
+      for (int step = 0; step < schedule.numSteps(); step++) {
+        List<PlaceInfo> places = schedule.placesAtStep(step);
+        for (PlaceInfo place : places) {
+          for (int i = 0; i < place.numEnclosingPlaces(); i++) {
+            assertThat(places).contains(place.enclosingPlace(i));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNestedPlaces_disabled() {
+    testKit.getGlobals().nestPlaces = false;
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    staticNetworkBuilder.createPlacesAndPersonDailySchedules();
+
+    staticNetworkBuilder.getAllPlaces()
+        .forEach(p -> assertThat(p.numEnclosingPlaces()).isEqualTo(0));
+  }
+
+  @Test
+  public void testEventAssignment_sameNumberOfEventsAsLegacy() {
+    StaticNetworkBuilder staticNetworkBuilder = new StaticNetworkBuilder();
+    staticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+    Map<Long, Long> numEvents = numEventsPerPerson(staticNetworkBuilder);
+
+    testKit.getGlobals().legacyEventAssignment = true;
+    StaticNetworkBuilder legacyStaticNetworkBuilder = new StaticNetworkBuilder();
+    legacyStaticNetworkBuilder.createConnectionOfAgents(allPeople, testKit.getGlobals());
+
+    assertThat(numEvents).isNotEmpty();
+    assertThat(numEvents).isEqualTo(numEventsPerPerson(legacyStaticNetworkBuilder));
+  }
+
+  // Events happen every day at the first step, so everyone is at all of their events at step 0.
+  private static Map<Long, Long> numEventsPerPerson(StaticNetworkBuilder staticNetworkBuilder) {
+    Map<Long, Long> numEvents = new HashMap<>();
+    staticNetworkBuilder
+        .createPlacesAndPersonDailySchedules()
+        .forEach(
+            (personId, schedule) -> {
+              long numEventsOfPerson =
+                  schedule.placesAtStep(0).stream()
+                      .filter(p -> p.placeType() == TAUModel.PlaceType.CAMPUS_EVENT.ordinal())
+                      .count();
+              if (numEventsOfPerson > 0) {
+                numEvents.put(personId, numEventsOfPerson);
+              }
+            });
+    return numEvents;
+  }
 }